@@ -0,0 +1,295 @@
+package com.pnikosis.materialishprogress.sample;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+import com.pnikosis.materialishprogress.ProgressWheel;
+import com.pnikosis.materialishprogress.WheelStyle;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Assume;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A number of wheels in mixed modes driven frame by frame on the main looper of Robolectric.
+ * <p/>
+ * The modes take turns: an indeterminate spinner, a line arrow spinner stopped and started
+ * again so its arrows are played, and a determinate wheel going back and forth between 0 and 1
+ * from its progress callback, like in the sample.
+ * <p/>
+ * A frame lets the frame interval pass on the looper, then only the wheels invalidated since
+ * the last frame are drawn, like the display lists recorded again with hardware acceleration.
+ * The canvas doesn't draw anything, what is measured is the work of the library on the main
+ * thread, not the rasterization.
+ */
+class BenchmarkScene {
+    static final int MODE_INDETERMINATE = 0;
+    static final int MODE_LINE_ARROW = 1;
+    static final int MODE_DETERMINATE = 2;
+    private static final int MODES = 3;
+    private static final long frameInterval = 1000 / 60;
+    // A line arrow spinner is stopped and started again every second
+    private static final int arrowToggleFrames = 60;
+
+    private final List<BenchmarkWheel> wheels = new ArrayList<BenchmarkWheel>();
+    private final CountingCanvas canvas = new CountingCanvas();
+
+    BenchmarkScene(Context context, int wheelCount) {
+        this(context, wheelCount, new WheelStyle.Builder(context).build());
+    }
+
+    /**
+     * @param style the style of all the wheels, the line arrow ones get a line arrow on top of it
+     */
+    BenchmarkScene(Context context, int wheelCount, WheelStyle style) {
+        WheelStyle lineArrowStyle = style.buildUpon().lineArrow(true).build();
+        int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+        for (int i = 0; i < wheelCount; i++) {
+            final BenchmarkWheel wheel = new BenchmarkWheel(context, i % MODES);
+            wheel.setStyle(style);
+            switch (wheel.mode) {
+                case MODE_INDETERMINATE:
+                    wheel.spin();
+                    break;
+                case MODE_LINE_ARROW:
+                    wheel.setStyle(lineArrowStyle);
+                    wheel.spin();
+                    break;
+                case MODE_DETERMINATE:
+                    wheel.setLinearProgress(i % 2 == 0);
+                    wheel.setProgress(0.0f);
+                    wheel.setCallback(new ProgressWheel.ProgressCallback() {
+                        @Override
+                        public void onProgressUpdate(float progress) {
+                            if (progress == 0) {
+                                wheel.setProgress(1.0f);
+                            } else if (progress == 1.0f) {
+                                wheel.setProgress(0.0f);
+                            }
+                        }
+                    });
+                    break;
+            }
+            wheel.measure(spec, spec);
+            wheel.layout(0, 0, wheel.getMeasuredWidth(), wheel.getMeasuredHeight());
+            wheels.add(wheel);
+        }
+    }
+
+    /**
+     * Run the frames and measure the ones after the warm-up
+     */
+    Result run(int warmUpFrames, int frames) {
+        Result result = new Result(wheels.size(), frames);
+        for (int frame = 0; frame < warmUpFrames + frames; frame++) {
+            long invalidations = countInvalidations();
+            ShadowLooper.idleMainLooper(frameInterval);
+
+            int index = frame - warmUpFrames;
+            long allocated = allocatedBytes();
+            int drawCalls = canvas.drawCalls;
+            long start = System.nanoTime();
+
+            int drawn = drawFrame(frame);
+
+            long time = System.nanoTime() - start;
+            if (index < 0) {
+                continue;
+            }
+            result.frameNanos[index] = time;
+            result.allocatedBytes += allocated >= 0 ? allocatedBytes() - allocated : 0;
+            result.wheelsDrawn += drawn;
+            result.drawCalls += canvas.drawCalls - drawCalls;
+            result.invalidations += countInvalidations() - invalidations;
+        }
+        result.allocationsMeasured = allocatedBytes() >= 0;
+        return result;
+    }
+
+    private int drawFrame(int frame) {
+        int drawn = 0;
+        for (int i = 0; i < wheels.size(); i++) {
+            BenchmarkWheel wheel = wheels.get(i);
+            if (wheel.mode == MODE_LINE_ARROW && frame > 0 && frame % arrowToggleFrames == 0) {
+                if ((frame / arrowToggleFrames) % 2 == 1) {
+                    wheel.stopSpinning();
+                } else {
+                    wheel.spin();
+                }
+            }
+            if (wheel.isDirty) {
+                wheel.isDirty = false;
+                wheel.draw(canvas);
+                drawn++;
+            }
+        }
+        return drawn;
+    }
+
+    private long countInvalidations() {
+        long invalidations = 0;
+        for (int i = 0; i < wheels.size(); i++) {
+            invalidations += wheels.get(i).invalidations;
+        }
+        return invalidations;
+    }
+
+    /**
+     * @return the bytes allocated by the thread so far, or -1 if the JVM can't tell
+     */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Skip the benchmark unless it was asked for with -Pbenchmark, it takes long and checks nothing
+     */
+    static void assumeRequested() {
+        Assume.assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Write the results in the benchmark output directory
+     */
+    static void write(JSONObject results, String fileName) throws IOException, JSONException {
+        File dir = new File(System.getProperty("benchmark.outputDir", "build/benchmark"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dir, fileName)), "UTF-8");
+        try {
+            writer.write(results.toString(2));
+        } finally {
+            writer.close();
+        }
+    }
+
+    static class Result {
+        final int wheels;
+        final long[] frameNanos;
+        long allocatedBytes = 0;
+        boolean allocationsMeasured;
+        long invalidations = 0;
+        long wheelsDrawn = 0;
+        long drawCalls = 0;
+
+        Result(int wheels, int frames) {
+            this.wheels = wheels;
+            frameNanos = new long[frames];
+        }
+
+        JSONObject toJson() throws JSONException {
+            long[] sorted = frameNanos.clone();
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long nanos : frameNanos) {
+                total += nanos;
+            }
+            int frames = frameNanos.length;
+
+            JSONObject json = new JSONObject();
+            json.put("wheels", wheels);
+            json.put("frames", frames);
+            json.put("frameNanosMean", total / frames);
+            json.put("frameNanosMedian", sorted[frames / 2]);
+            json.put("frameNanosP90", sorted[frames * 9 / 10]);
+            json.put("frameNanosMax", sorted[frames - 1]);
+            json.put("allocatedBytesPerFrame", allocationsMeasured ? (double) allocatedBytes / frames : -1);
+            json.put("invalidationsPerFrame", (double) invalidations / frames);
+            json.put("wheelsDrawnPerFrame", (double) wheelsDrawn / frames);
+            json.put("drawCallsPerFrame", (double) drawCalls / frames);
+            return json;
+        }
+    }
+
+    /**
+     * Counts its invalidations, the ones of the animation and the ones of the state changes
+     */
+    private static class BenchmarkWheel extends ProgressWheel {
+        final int mode;
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        long invalidations = 0;
+        // Invalidated since its last draw
+        boolean isDirty = true;
+
+        BenchmarkWheel(Context context, int mode) {
+            super(context);
+            this.mode = mode;
+        }
+
+        @Override
+        public void invalidate() {
+            invalidations++;
+            isDirty = true;
+            super.invalidate();
+        }
+
+        @Override
+        public void postInvalidateDelayed(long delayMilliseconds) {
+            invalidations++;
+            // Drawn on the frame after the delay, the wheel is not attached to post it itself
+            handler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    isDirty = true;
+                }
+            }, delayMilliseconds);
+        }
+    }
+
+    /**
+     * Counts the draw calls of the wheels without drawing them
+     */
+    static class CountingCanvas extends Canvas {
+        int drawCalls = 0;
+
+        @Override
+        public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawColor(int color) {
+            drawCalls++;
+        }
+    }
+}
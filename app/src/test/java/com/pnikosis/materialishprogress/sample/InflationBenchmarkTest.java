@@ -0,0 +1,189 @@
+package com.pnikosis.materialishprogress.sample;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import com.pnikosis.materialishprogress.ProgressWheel;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.res.Attribute;
+import org.robolectric.shadows.RoboAttributeSet;
+import org.robolectric.shadows.ShadowApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inflates rounds of 100 wheels from the attributes a layout would give them and draws each
+ * of them once, and writes the results to inflation-benchmark.json:
+ * <ul>
+ * <li>uncached: each wheel is inflated in a theme of its own, so its attributes are parsed
+ * like before the style cache</li>
+ * <li>cached: all the wheels share the theme, only the first one parses its attributes</li>
+ * </ul>
+ * The paints and the bounds are set up on the first draw, so it is measured too.
+ * <p/>
+ * heapPerWheel is the heap kept by a wheel once inflated and drawn: the used heap after a GC
+ * with 100 such wheels alive, minus the used heap before inflating them.
+ * <ul>
+ * <li>ownStyle: each wheel gets a style of its own, so its own paints, like before the
+ * styles were shared</li>
+ * <li>sharedStyle: all the wheels share the style of the layout</li>
+ * </ul>
+ * The paints of Robolectric have no native part, on a device each one also keeps an SkPaint.
+ * <p/>
+ * Like RenderBenchmarkTest, it only runs with -Pbenchmark.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class InflationBenchmarkTest {
+    private static final int wheels = 100;
+    private static final int warmUpRounds = 5;
+    private static final int rounds = 20;
+    private static final String packageName = "com.pnikosis.materialishprogress.sample";
+    // Keeps the wheels reachable while the heap is measured
+    private static View[] retained;
+
+    @Test
+    public void inflateWheels() throws Exception {
+        BenchmarkScene.assumeRequested();
+        Context context = RuntimeEnvironment.application;
+        AttributeSet attrs = wheelAttributes();
+
+        JSONObject results = new JSONObject();
+        results.put("wheelsPerRound", wheels);
+        results.put("rounds", rounds);
+        results.put("uncached", measure(context, attrs, false));
+        results.put("cached", measure(context, attrs, true));
+        JSONObject heap = new JSONObject();
+        heap.put("ownStyle", retainedBytesPerWheel(context, attrs, true));
+        heap.put("sharedStyle", retainedBytesPerWheel(context, attrs, false));
+        results.put("heapPerWheel", heap);
+        System.out.println("inflation benchmark " + results);
+
+        BenchmarkScene.write(results, "inflation-benchmark.json");
+    }
+
+    private static JSONObject measure(Context context, AttributeSet attrs, boolean cached) throws Exception {
+        long[] inflateNanos = new long[rounds];
+        long[] firstDrawNanos = new long[rounds];
+        long inflateBytes = 0;
+        long firstDrawBytes = 0;
+        BenchmarkScene.CountingCanvas canvas = new BenchmarkScene.CountingCanvas();
+        int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+        for (int round = 0; round < warmUpRounds + rounds; round++) {
+            // The themes are created before measuring
+            Context[] contexts = createContexts(context, cached);
+            View[] views = new View[wheels];
+
+            long allocated = BenchmarkScene.allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < wheels; i++) {
+                views[i] = new ProgressWheel(contexts[i], attrs);
+            }
+            long inflated = System.nanoTime();
+            long inflatedAllocated = BenchmarkScene.allocatedBytes();
+
+            for (int i = 0; i < wheels; i++) {
+                views[i].measure(spec, spec);
+                views[i].layout(0, 0, views[i].getMeasuredWidth(), views[i].getMeasuredHeight());
+                views[i].draw(canvas);
+            }
+            long drawn = System.nanoTime();
+
+            int index = round - warmUpRounds;
+            if (index < 0) {
+                continue;
+            }
+            inflateNanos[index] = inflated - start;
+            firstDrawNanos[index] = drawn - inflated;
+            if (allocated >= 0) {
+                inflateBytes += inflatedAllocated - allocated;
+                firstDrawBytes += BenchmarkScene.allocatedBytes() - inflatedAllocated;
+            }
+        }
+
+        boolean allocationsMeasured = BenchmarkScene.allocatedBytes() >= 0;
+        JSONObject json = new JSONObject();
+        json.put("inflateNanosMedian", median(inflateNanos));
+        json.put("firstDrawNanosMedian", median(firstDrawNanos));
+        json.put("inflateBytesPerRound", allocationsMeasured ? inflateBytes / rounds : -1);
+        json.put("firstDrawBytesPerRound", allocationsMeasured ? firstDrawBytes / rounds : -1);
+        return json;
+    }
+
+    private static Context[] createContexts(Context context, boolean cached) {
+        Context[] contexts = new Context[wheels];
+        for (int i = 0; i < wheels; i++) {
+            if (cached) {
+                contexts[i] = context;
+            } else {
+                Context themed = new ContextThemeWrapper(context, R.style.AppTheme);
+                themed.getTheme();
+                contexts[i] = themed;
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * @return the attributes of the wheel of a layout, the test sources have no layouts
+     */
+    private static AttributeSet wheelAttributes() {
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        attributes.add(new Attribute(packageName + ":attr/matProg_barColor", "#5588FF", packageName));
+        attributes.add(new Attribute(packageName + ":attr/matProg_barWidth", "5dp", packageName));
+        attributes.add(new Attribute(packageName + ":attr/matProg_progressIndeterminate", "true", packageName));
+        return new RoboAttributeSet(attributes, ShadowApplication.getInstance().getResourceLoader());
+    }
+
+    /**
+     * @param ownStyle true to give each wheel a style of its own, with a different bar color
+     * @return the heap kept by each wheel once inflated and drawn, in bytes
+     */
+    private static long retainedBytesPerWheel(Context context, AttributeSet attrs, boolean ownStyle) {
+        BenchmarkScene.CountingCanvas canvas = new BenchmarkScene.CountingCanvas();
+        int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        retained = new View[wheels];
+
+        long before = usedHeap();
+        for (int i = 0; i < wheels; i++) {
+            ProgressWheel view = new ProgressWheel(context, attrs);
+            if (ownStyle) {
+                view.setStyle(view.getStyle().buildUpon().barColor(0xFF000000 | i).build());
+            }
+            view.measure(spec, spec);
+            view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+            view.draw(canvas);
+            retained[i] = view;
+        }
+        long after = usedHeap();
+
+        retained = null;
+        return (after - before) / wheels;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,108 @@
+package com.pnikosis.materialishprogress.sample;
+
+import android.content.Context;
+
+import com.pnikosis.materialishprogress.WheelStyle;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Scanner;
+
+/**
+ * Renders scenes of 1, 10, 100 and 500 wheels for a fixed number of frames, see
+ * {@link BenchmarkScene}, then 100 wheels with a color sequence drawn solid and with
+ * the bar gradient, and writes the results to render-benchmark.json:
+ * <pre>
+ * ./gradlew :app:testDebug -Pbenchmark [-PbenchmarkBaseline=path/to/render-benchmark.json]
+ * </pre>
+ * With a baseline, each scene also gets the ratios of its metrics to the same scene
+ * of the baseline. The times depend on the machine, the invalidations and the draws don't.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RenderBenchmarkTest {
+    private static final int[] sceneSizes = {1, 10, 100, 500};
+    private static final int warmUpFrames = 120;
+    private static final int frames = 600;
+    private static final int shadingSceneSize = 100;
+    private static final int[] barColors = {0xFFE91E63, 0xFF3F51B5, 0xFF009688, 0xFFFF9800};
+    private static final long crossFadeTime = 300;
+    private static final String[] comparedMetrics = {"frameNanosMedian", "frameNanosP90",
+            "allocatedBytesPerFrame", "invalidationsPerFrame", "wheelsDrawnPerFrame", "drawCallsPerFrame"};
+
+    @Test
+    public void renderScenes() throws Exception {
+        BenchmarkScene.assumeRequested();
+        JSONArray baseline = readBaseline();
+
+        Context context = RuntimeEnvironment.application;
+        JSONArray scenes = new JSONArray();
+        for (int size : sceneSizes) {
+            scenes.put(run("mixed-" + size, new BenchmarkScene(context, size), baseline));
+        }
+
+        // The colors cross-fade on every turn, the gradient is tinted on every frame of a fade
+        WheelStyle colors = new WheelStyle.Builder(context).barColors(barColors, crossFadeTime).build();
+        scenes.put(run("solid-" + shadingSceneSize,
+                new BenchmarkScene(context, shadingSceneSize, colors), baseline));
+        scenes.put(run("gradient-" + shadingSceneSize,
+                new BenchmarkScene(context, shadingSceneSize, colors.buildUpon().barGradient(true).build()), baseline));
+
+        JSONObject results = new JSONObject();
+        results.put("warmUpFrames", warmUpFrames);
+        results.put("scenes", scenes);
+
+        BenchmarkScene.write(results, "render-benchmark.json");
+    }
+
+    private static JSONObject run(String name, BenchmarkScene scene, JSONArray baseline) throws Exception {
+        JSONObject result = scene.run(warmUpFrames, frames).toJson();
+        result.put("scene", name);
+        if (baseline != null) {
+            compare(result, baseline);
+        }
+        System.out.println("render benchmark " + result);
+        return result;
+    }
+
+    private static void compare(JSONObject result, JSONArray baseline) throws Exception {
+        for (int i = 0; i < baseline.length(); i++) {
+            JSONObject base = baseline.getJSONObject(i);
+            if (!result.getString("scene").equals(base.optString("scene"))) {
+                continue;
+            }
+
+            JSONObject ratios = new JSONObject();
+            for (String metric : comparedMetrics) {
+                double value = base.optDouble(metric, 0);
+                if (value > 0 && result.getDouble(metric) >= 0) {
+                    ratios.put(metric, result.getDouble(metric) / value);
+                }
+            }
+            result.put("baselineRatios", ratios);
+            return;
+        }
+    }
+
+    private static JSONArray readBaseline() throws Exception {
+        String path = System.getProperty("benchmark.baseline");
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        InputStream in = new FileInputStream(path);
+        try {
+            String text = new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+            return new JSONObject(text).getJSONArray("scenes");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,557 @@
+package com.pnikosis.materialishprogress;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Exports the steady indeterminate spinner of a {@link ProgressWheel} as an AnimatedVectorDrawable,
+ * run by the generateSpinnerDrawables task of the library build.
+ * <p/>
+ * The timings are not taken from the formulas, a {@link WheelAnimator} is run at 60 frames per
+ * second and measured, so the drawable moves like the spinner on a device. The bar is a trimmed
+ * circle: its length follows a pathInterpolator played back and forth, its tail a pathInterpolator
+ * over a few cycles of the bar, chosen so the drawable repeats after a whole number of turns.
+ * The generated drawable is then sampled on every frame and compared with the animator.
+ * <p/>
+ * The starting and finishing arrows are the transitions of spin() and stopSpinning(),
+ * they are not part of the steady spinner and are not exported.
+ * <pre>
+ * AvdExporter &lt;res dir&gt; &lt;tolerance in degrees&gt; &lt;spec&gt;...
+ * spec: name=&lt;resource&gt;,size=&lt;dp&gt;,barWidth=&lt;dp&gt;,color=#AARRGGBB,
+ *       spinSpeed=&lt;turns per second&gt;,barSpinCycleTime=&lt;ms&gt;
+ * </pre>
+ */
+class AvdExporter {
+    private static final double frameInterval = 1000.0 / 60;
+    // Control point of the cubic closest to the cosine ease of the bar length
+    private static final double easeControl = 0.3642;
+    private static final int warmUpCycles = 2;
+    private static final int measuredCycles = 20;
+    private static final int maxCycles = 16;
+    // How much the speed can change so the drawable repeats after whole turns
+    private static final double maxSpeedChange = 0.01;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: AvdExporter <res dir> <tolerance in degrees> <spec>...");
+            System.exit(2);
+        }
+        File resDir = new File(args[0]);
+        double tolerance = Double.parseDouble(args[1]);
+
+        boolean failed = false;
+        for (int i = 2; i < args.length; i++) {
+            Spec spec = Spec.parse(args[i]);
+            Spinner spinner = Spinner.measure(spec);
+            double error = spinner.verify();
+            System.out.println(String.format(Locale.US,
+                    "%s: cycle %.1fms, %d cycles in %d turns, speed %+.2f%%, max error %.3f degrees",
+                    spec.name, spinner.cycle, spinner.cycles, spinner.turns,
+                    spinner.speedChange() * 100, error));
+            if (error > tolerance) {
+                System.err.println(spec.name + ": the drawable differs from the spinner by more than "
+                        + tolerance + " degrees");
+                failed = true;
+                continue;
+            }
+            spinner.write(resDir);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    //----------------------------------
+    //Runtime
+    //----------------------------------
+
+    /**
+     * A spinning animator drawn at 60 frames per second, with the tail angle unwrapped
+     */
+    private static class Runtime {
+        final WheelAnimator animator = new WheelAnimator();
+        int frame = 0;
+        int turns = 0;
+
+        Runtime(Spec spec) {
+            animator.spinSpeed = (float) (spec.spinSpeed * 360);
+            animator.barSpinCycleTime = spec.barSpinCycleTime;
+            animator.isSpinning = true;
+            animator.isStartingArrow = false;
+            // A shrink just finished, the bar pauses at its shortest and then grows
+            animator.barGrowingFromFront = true;
+            animator.pausedTimeWithoutGrowing = 0;
+            animator.timeStartGrowing = 0;
+            animator.barExtraLength = 0;
+            animator.lastTimeAnimated = 0;
+        }
+
+        static long time(int frame) {
+            return Math.round(frame * frameInterval);
+        }
+
+        long time() {
+            return time(frame);
+        }
+
+        void step() {
+            frame++;
+            if ((animator.advance(time(frame)) & WheelAnimator.FRAME_TURN_COMPLETED) != 0) {
+                turns++;
+            }
+        }
+
+        double tail() {
+            return animator.mProgress + 360.0 * turns;
+        }
+
+        double length() {
+            return WheelAnimator.barLength + animator.barExtraLength;
+        }
+    }
+
+    //----------------------------------
+    //Drawable
+    //----------------------------------
+
+    private static class Spinner {
+        final Spec spec;
+        // Measured on the runtime, in ms and degrees
+        double measuredCycle;
+        double cycle;
+        double grow;
+        double pause;
+        double rate;
+        double tailPerCycle;
+        // The drawable
+        int cycles;
+        int turns;
+        double adjustedRate;
+        Path offsetPath;
+        Path lengthPath;
+
+        Spinner(Spec spec) {
+            this.spec = spec;
+        }
+
+        static Spinner measure(Spec spec) {
+            Spinner spinner = new Spinner(spec);
+            Runtime runtime = new Runtime(spec);
+
+            // Cycles end when the bar starts growing again
+            boolean growing = runtime.animator.barGrowingFromFront;
+            int cycleEnds = 0;
+            long firstEnd = 0;
+            double firstTail = 0;
+            int growFrames = 0;
+            double previousLength = runtime.length();
+            while (cycleEnds <= warmUpCycles + measuredCycles) {
+                runtime.step();
+                boolean nowGrowing = runtime.animator.barGrowingFromFront;
+                if (nowGrowing && !growing) {
+                    cycleEnds++;
+                    if (cycleEnds == warmUpCycles) {
+                        firstEnd = runtime.time();
+                        firstTail = runtime.tail();
+                    }
+                }
+                growing = nowGrowing;
+                if (cycleEnds >= warmUpCycles && nowGrowing && runtime.length() > previousLength) {
+                    growFrames++;
+                }
+                previousLength = runtime.length();
+            }
+
+            // In whole milliseconds for the durations of both animators, even for the half cycles
+            spinner.measuredCycle = (double) (runtime.time() - firstEnd) / (cycleEnds - warmUpCycles);
+            spinner.cycle = 2 * Math.round(spinner.measuredCycle / 2);
+            spinner.tailPerCycle = (runtime.tail() - firstTail) / (cycleEnds - warmUpCycles);
+            spinner.grow = growFrames * frameInterval / (cycleEnds - warmUpCycles);
+            spinner.pause = spinner.cycle / 2 - spinner.grow;
+            double shrink = WheelAnimator.barMaxLength - WheelAnimator.barLength;
+            spinner.rate = (spinner.tailPerCycle - shrink) / spinner.measuredCycle;
+
+            // The fewest cycles that repeat after whole turns with the smallest change of the mean speed
+            double bestChange = Double.MAX_VALUE;
+            for (int cycles = 1; cycles <= maxCycles; cycles++) {
+                int turns = (int) Math.round(cycles * spinner.tailPerCycle / 360);
+                double rate = (turns * 360.0 / cycles - shrink) / spinner.cycle;
+                double change = Math.abs(turns * 360.0 / cycles / spinner.cycle
+                        / (spinner.tailPerCycle / spinner.measuredCycle) - 1);
+                if (change < bestChange - 1e-9) {
+                    bestChange = change;
+                    spinner.cycles = cycles;
+                    spinner.turns = turns;
+                    spinner.adjustedRate = rate;
+                }
+                if (change <= maxSpeedChange / 10) {
+                    break;
+                }
+            }
+            if (bestChange > maxSpeedChange) {
+                throw new IllegalStateException(spec.name + ": no whole number of turns within "
+                        + maxSpeedChange * 100 + "% of the speed");
+            }
+
+            spinner.buildPaths();
+            return spinner;
+        }
+
+        /**
+         * The tail over all the cycles and the length over half a cycle, from the middle
+         * of the pause before the bar grows
+         */
+        void buildPaths() {
+            double shrink = WheelAnimator.barMaxLength - WheelAnimator.barLength;
+            double period = cycle * cycles;
+            double total = turns * 360.0;
+
+            offsetPath = new Path();
+            double t = 0;
+            double y = 0;
+            for (int i = 0; i < cycles; i++) {
+                // Half a pause, growing, a pause: only the rotation moves the tail
+                double lineTime = pause / 2 + grow + pause;
+                t += lineTime;
+                y += adjustedRate * lineTime;
+                offsetPath.lineTo(t / period, y / total);
+
+                // Shrinking, the tail catches up with the head
+                double x0 = t;
+                double y0 = y;
+                t += grow;
+                y += adjustedRate * grow + shrink;
+                offsetPath.cubicTo(
+                        (x0 + easeControl * grow) / period,
+                        (y0 + adjustedRate * easeControl * grow) / total,
+                        (x0 + (1 - easeControl) * grow) / period,
+                        (y0 + adjustedRate * (1 - easeControl) * grow + shrink) / total,
+                        t / period, y / total);
+
+                t += pause / 2;
+                y += adjustedRate * pause / 2;
+            }
+            offsetPath.lineTo(1, 1);
+
+            // Played forward then backward: half a pause, growing, half a pause
+            double half = pause + grow;
+            double growStart = pause / 2 / half;
+            double growEnd = (pause / 2 + grow) / half;
+            lengthPath = new Path();
+            lengthPath.lineTo(growStart, 0);
+            lengthPath.cubicTo(growStart + easeControl * grow / half, 0,
+                    growEnd - easeControl * grow / half, 1, growEnd, 1);
+            lengthPath.lineTo(1, 1);
+        }
+
+        double evaluateTail(double time) {
+            double period = cycle * cycles;
+            double x = (time % period) / period;
+            return Math.floor(time / period) * turns * 360 + offsetPath.evaluate(x) * turns * 360;
+        }
+
+        double evaluateLength(double time) {
+            double half = pause + grow;
+            long k = (long) Math.floor(time / half);
+            double x = (time - k * half) / half;
+            if (k % 2 == 1) {
+                x = 1 - x;
+            }
+            return WheelAnimator.barLength
+                    + lengthPath.evaluate(x) * (WheelAnimator.barMaxLength - WheelAnimator.barLength);
+        }
+
+        /**
+         * Compare every frame of the runtime with the drawable over a whole period of the drawable,
+         * the change of speed is taken out of the comparison
+         *
+         * @return the largest difference of the tail or of the length, in degrees
+         */
+        double verify() {
+            double period = cycle * cycles;
+
+            // The drawable starts in the middle of the pause before the bar grows
+            Runtime runtime = new Runtime(spec);
+            while (runtime.animator.barGrowingFromFront) {
+                runtime.step();
+            }
+            while (!runtime.animator.barGrowingFromFront) {
+                runtime.step();
+            }
+            double previous = runtime.length();
+            runtime.step();
+            while (runtime.length() <= previous) {
+                previous = runtime.length();
+                runtime.step();
+            }
+            // Between the last frame of the pause and the first frame of growth, refined below
+            double estimate = runtime.time() - frameInterval / 2 - pause / 2;
+
+            List<double[]> frames = new ArrayList<double[]>();
+            while (runtime.time() - estimate < period + cycle) {
+                frames.add(new double[]{runtime.time(), runtime.tail(), runtime.length()});
+                runtime.step();
+            }
+
+            // The drawable starts at a phase and an angle of its own, the ones closest to the runtime
+            double maxError = Double.MAX_VALUE;
+            for (double shift = -frameInterval * 2; shift <= frameInterval * 2; shift += 0.5) {
+                maxError = Math.min(maxError, compare(frames, estimate + shift));
+            }
+            return maxError;
+        }
+
+        private double compare(List<double[]> frames, double start) {
+            double lowest = Double.MAX_VALUE;
+            double highest = -Double.MAX_VALUE;
+            double maxLengthError = 0;
+            for (double[] frame : frames) {
+                double time = frame[0] - start;
+                if (time < 0) {
+                    continue;
+                }
+                double tailError = frame[1] - expectedTail(time);
+                lowest = Math.min(lowest, tailError);
+                highest = Math.max(highest, tailError);
+                double lengthError = frame[2] - evaluateLength(time * cycle / measuredCycle);
+                maxLengthError = Math.max(maxLengthError, Math.abs(lengthError));
+            }
+            // Centered on the angle that halves the largest difference of the tail
+            return Math.max((highest - lowest) / 2, maxLengthError);
+        }
+
+        /**
+         * @return how much faster the drawable turns on average than the runtime
+         */
+        double speedChange() {
+            return turns * 360.0 / cycles / cycle / (tailPerCycle / measuredCycle) - 1;
+        }
+
+        /**
+         * @return how much faster the bar rotates between shrinks than on the runtime
+         */
+        double timeScale() {
+            return adjustedRate * cycle / (rate * measuredCycle);
+        }
+
+        /**
+         * @param time the time since the start of the drawable on the runtime, in ms
+         */
+        private double expectedTail(double time) {
+            double rotation = rate * time;
+            return evaluateTail(time * cycle / measuredCycle) - rotation * (timeScale() - 1);
+        }
+
+        void write(File resDir) throws IOException {
+            String name = spec.name;
+            double radius = spec.size / 2.0 - spec.barWidth;
+            double center = spec.size / 2.0;
+            double shortest = (double) WheelAnimator.barLength / 360;
+            double longest = (double) WheelAnimator.barMaxLength / 360;
+
+            writeXml(new File(resDir, "drawable-v21/" + name + "_vector.xml"),
+                    "<vector xmlns:android=\"http://schemas.android.com/apk/res/android\"\n"
+                            + "    android:width=\"" + format(spec.size) + "dp\"\n"
+                            + "    android:height=\"" + format(spec.size) + "dp\"\n"
+                            + "    android:viewportWidth=\"" + format(spec.size) + "\"\n"
+                            + "    android:viewportHeight=\"" + format(spec.size) + "\">\n"
+                            + "    <path\n"
+                            + "        android:name=\"bar\"\n"
+                            // A circle from the top, clockwise like drawArc
+                            + "        android:pathData=\"M " + format(center) + "," + format(center - radius)
+                            + " A " + format(radius) + "," + format(radius) + " 0 1,1 "
+                            + format(center) + "," + format(center + radius)
+                            + " A " + format(radius) + "," + format(radius) + " 0 1,1 "
+                            + format(center) + "," + format(center - radius) + "\"\n"
+                            + "        android:strokeColor=\"" + spec.color + "\"\n"
+                            + "        android:strokeWidth=\"" + format(spec.barWidth) + "\"\n"
+                            + "        android:trimPathStart=\"0\"\n"
+                            + "        android:trimPathEnd=\"" + format(shortest) + "\"\n"
+                            + "        android:trimPathOffset=\"0\" />\n"
+                            + "</vector>\n");
+
+            writeXml(new File(resDir, "drawable-v21/" + name + ".xml"),
+                    "<animated-vector xmlns:android=\"http://schemas.android.com/apk/res/android\"\n"
+                            + "    android:drawable=\"@drawable/" + name + "_vector\">\n"
+                            + "    <target\n"
+                            + "        android:name=\"bar\"\n"
+                            + "        android:animation=\"@animator/" + name + "_bar\" />\n"
+                            + "</animated-vector>\n");
+
+            writeXml(new File(resDir, "animator-v21/" + name + "_bar.xml"),
+                    "<set xmlns:android=\"http://schemas.android.com/apk/res/android\">\n"
+                            + "    <objectAnimator\n"
+                            + "        android:propertyName=\"trimPathOffset\"\n"
+                            + "        android:valueType=\"floatType\"\n"
+                            + "        android:valueFrom=\"0\"\n"
+                            + "        android:valueTo=\"" + turns + "\"\n"
+                            + "        android:duration=\"" + Math.round(cycle * cycles) + "\"\n"
+                            + "        android:repeatCount=\"infinite\"\n"
+                            + "        android:interpolator=\"@interpolator/" + name + "_offset\" />\n"
+                            + "    <objectAnimator\n"
+                            + "        android:propertyName=\"trimPathEnd\"\n"
+                            + "        android:valueType=\"floatType\"\n"
+                            + "        android:valueFrom=\"" + format(shortest) + "\"\n"
+                            + "        android:valueTo=\"" + format(longest) + "\"\n"
+                            + "        android:duration=\"" + Math.round(pause + grow) + "\"\n"
+                            + "        android:repeatCount=\"infinite\"\n"
+                            + "        android:repeatMode=\"reverse\"\n"
+                            + "        android:interpolator=\"@interpolator/" + name + "_length\" />\n"
+                            + "</set>\n");
+
+            writeXml(new File(resDir, "interpolator-v21/" + name + "_offset.xml"),
+                    "<pathInterpolator xmlns:android=\"http://schemas.android.com/apk/res/android\"\n"
+                            + "    android:pathData=\"" + offsetPath + "\" />\n");
+
+            writeXml(new File(resDir, "interpolator-v21/" + name + "_length.xml"),
+                    "<pathInterpolator xmlns:android=\"http://schemas.android.com/apk/res/android\"\n"
+                            + "    android:pathData=\"" + lengthPath + "\" />\n");
+        }
+    }
+
+    private static void writeXml(File file, String content) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+            writer.write("<!-- Generated by the generateSpinnerDrawables task from WheelAnimator, do not edit -->\n");
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String format(double value) {
+        String text = String.format(Locale.US, "%.6f", value);
+        // Trailing zeros
+        text = text.replaceAll("0+$", "");
+        return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * A pathInterpolator curve from (0, 0) to (1, 1) made of lines and cubics, evaluated
+     * with the same rounded coordinates as the ones written in the resource
+     */
+    private static class Path {
+        private final List<double[]> segments = new ArrayList<double[]>();
+        private final StringBuilder data = new StringBuilder("M 0,0");
+        private double x = 0;
+        private double y = 0;
+
+        void lineTo(double x1, double y1) {
+            x1 = round(x1);
+            y1 = round(y1);
+            segments.add(new double[]{x, y, x1, y1});
+            data.append(" L ").append(format(x1)).append(',').append(format(y1));
+            x = x1;
+            y = y1;
+        }
+
+        void cubicTo(double cx1, double cy1, double cx2, double cy2, double x1, double y1) {
+            cx1 = round(cx1);
+            cy1 = round(cy1);
+            cx2 = round(cx2);
+            cy2 = round(cy2);
+            x1 = round(x1);
+            y1 = round(y1);
+            segments.add(new double[]{x, y, cx1, cy1, cx2, cy2, x1, y1});
+            data.append(" C ").append(format(cx1)).append(',').append(format(cy1))
+                    .append(' ').append(format(cx2)).append(',').append(format(cy2))
+                    .append(' ').append(format(x1)).append(',').append(format(y1));
+            x = x1;
+            y = y1;
+        }
+
+        double evaluate(double at) {
+            for (double[] s : segments) {
+                double end = s[s.length - 2];
+                if (at > end) {
+                    continue;
+                }
+                if (s.length == 4) {
+                    return s[2] == s[0] ? s[3] : s[1] + (s[3] - s[1]) * (at - s[0]) / (s[2] - s[0]);
+                }
+                // x is monotonic along the cubic, find its parameter
+                double low = 0;
+                double high = 1;
+                for (int i = 0; i < 50; i++) {
+                    double mid = (low + high) / 2;
+                    if (cubic(s[0], s[2], s[4], s[6], mid) < at) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return cubic(s[1], s[3], s[5], s[7], (low + high) / 2);
+            }
+            return y;
+        }
+
+        private static double cubic(double p0, double p1, double p2, double p3, double t) {
+            double u = 1 - t;
+            return u * u * u * p0 + 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t * p3;
+        }
+
+        private static double round(double value) {
+            return Double.parseDouble(format(value));
+        }
+
+        @Override
+        public String toString() {
+            return data.toString();
+        }
+    }
+
+    private static class Spec {
+        String name;
+        double size = 28;
+        double barWidth = 4;
+        String color = "#AA000000";
+        double spinSpeed = 230.0 / 360;
+        int barSpinCycleTime = 460;
+
+        static Spec parse(String text) {
+            Map<String, String> values = new HashMap<String, String>();
+            for (String entry : text.split(",")) {
+                int separator = entry.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Not a key=value pair: " + entry);
+                }
+                values.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+            }
+
+            Spec spec = new Spec();
+            spec.name = values.get("name");
+            if (spec.name == null) {
+                throw new IllegalArgumentException("The spinner needs a name: " + text);
+            }
+            if (values.containsKey("size")) {
+                spec.size = Double.parseDouble(values.get("size"));
+            }
+            if (values.containsKey("barWidth")) {
+                spec.barWidth = Double.parseDouble(values.get("barWidth"));
+            }
+            if (values.containsKey("color")) {
+                spec.color = values.get("color");
+            }
+            if (values.containsKey("spinSpeed")) {
+                spec.spinSpeed = Double.parseDouble(values.get("spinSpeed"));
+            }
+            if (values.containsKey("barSpinCycleTime")) {
+                spec.barSpinCycleTime = Integer.parseInt(values.get("barSpinCycleTime"));
+            }
+            return spec;
+        }
+    }
+}
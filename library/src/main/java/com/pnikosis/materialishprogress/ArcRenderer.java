@@ -0,0 +1,133 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Canvas;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * The default renderer: the bar with drawArc, the arrow as a path or two lines.
+ * The other renderers change how one of the parts is drawn.
+ */
+public class ArcRenderer implements WheelRenderer {
+    private final Path arrowPath = new Path();
+    // The two segments of the line arrow, x0 y0 x1 y1 for each
+    final float[] arrowLines = new float[8];
+
+    @Override
+    public String getName() {
+        return "arc";
+    }
+
+    @Override
+    public void draw(Canvas canvas, Frame frame) {
+        drawBar(canvas, frame);
+
+        if (frame.showArrow) {
+            if (frame.style.lineArrow) {
+                computeLineArrow(frame, arrowLines);
+                drawLineArrow(canvas, frame, arrowLines);
+            } else {
+                drawArrow(canvas, frame);
+            }
+        }
+    }
+
+    protected void drawBar(Canvas canvas, Frame frame) {
+        canvas.drawArc(frame.bounds, frame.from, frame.length, false, frame.barPaint);
+    }
+
+    /**
+     * @param lines the two segments of the arrow, x0 y0 x1 y1 for each
+     */
+    protected void drawLineArrow(Canvas canvas, Frame frame, float[] lines) {
+        canvas.drawLine(lines[0], lines[1], lines[2], lines[3], frame.arrowPaint);
+        canvas.drawLine(lines[4], lines[5], lines[6], lines[7], frame.arrowPaint);
+    }
+
+    static void computeLineArrow(Frame frame, float[] lines) {
+        float fromDegree = frame.from;
+        float lengthDegree = frame.length;
+        RectF circleBounds = frame.bounds;
+        float progress = (WheelAnimator.barMaxLength - lengthDegree)
+                / (WheelAnimator.barMaxLength - WheelAnimator.barLength);
+        int barWidth = frame.style.barWidth;
+        int maxArrowLineLength = frame.style.maxArrowLineLength;
+
+        double sin = Math.sin(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress));
+        double cos = Math.cos(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress));
+
+        double sin_45 = Math.sin(Math.toRadians(fromDegree + lengthDegree + 45 - 5 * progress));
+        double sin_minus_45 = Math.sin(Math.toRadians(fromDegree + lengthDegree - (45 - 5 * progress)));
+
+
+        float arrowLength = maxArrowLineLength * (1 - progress);
+        int inX = (int) ((sin_minus_45 * maxArrowLineLength) * (1 - progress) + (sin * arrowLength) * progress);
+        int inY = (int) ((-sin_45 * maxArrowLineLength) * (1 - progress) + ((-cos * arrowLength) * progress));
+
+        float circleRadius = circleBounds.width() / 2;
+
+        int inBaseX = (int) (cos * (circleRadius + barWidth / 4) + circleBounds.centerX());
+        int inBaseY = (int) (sin * (circleRadius + barWidth / 4) + circleBounds.centerY());
+
+        double rotateSin = Math.sin(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress + 45 + progress * 115));
+        double rotateSinMinus = Math.sin(Math.toRadians(fromDegree + lengthDegree - (5 - 5 * progress + 45) + progress * 115));
+        double advancedSin = Math.sin(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress - progress * barWidth));
+        double advancedCos = Math.cos(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress - progress * barWidth));
+
+        int outX = (int) (rotateSin * arrowLength);
+        int outY = (int) ((rotateSinMinus * arrowLength));
+        int outBaseX;
+        int outBaseY;
+        if (progress < 0.5f) {
+            outBaseX = (int) (advancedCos * (circleRadius + maxArrowLineLength * progress - barWidth / 4) + circleBounds.centerX());
+            outBaseY = (int) (advancedSin * (circleRadius + maxArrowLineLength * progress - barWidth / 4) + circleBounds.centerY());
+        } else {
+            outBaseX = (int) (advancedCos * (circleRadius + maxArrowLineLength * (1 - progress) - barWidth / 4) + circleBounds.centerX());
+            outBaseY = (int) (advancedSin * (circleRadius + maxArrowLineLength * (1 - progress) - barWidth / 4) + circleBounds.centerY());
+        }
+
+        lines[0] = inBaseX;
+        lines[1] = inBaseY;
+        lines[2] = inBaseX + inX;
+        lines[3] = inBaseY + inY;
+        lines[4] = outBaseX;
+        lines[5] = outBaseY;
+        lines[6] = outBaseX + outX;
+        lines[7] = outBaseY + outY;
+    }
+
+    protected void drawArrow(Canvas canvas, Frame frame) {
+        RectF circleBounds = frame.bounds;
+        float fromDegree = frame.from;
+        float lengthDegree = frame.length;
+        float barExtraLength = lengthDegree - WheelAnimator.barLength;
+        int barWidth = frame.style.barWidth;
+        int arrowSize = (int) (barWidth * 2
+                * (1 - (WheelAnimator.barMaxLength - barExtraLength) / WheelAnimator.barMaxLength));
+
+        double sin = Math.sin(Math.toRadians(fromDegree + lengthDegree));
+        double cos = Math.cos(Math.toRadians(fromDegree + lengthDegree));
+
+        float circleRadius = circleBounds.width() / 2;
+        int x = (int) (cos * circleRadius + circleBounds.centerX());
+        int y = (int) (sin * circleRadius + circleBounds.centerY());
+
+        int aX = (int) (cos * (circleRadius - barWidth - arrowSize) + circleBounds.centerX());
+        int aY = (int) (sin * (circleRadius - barWidth - arrowSize) + circleBounds.centerY());
+        int bX = (int) (cos * (circleRadius + barWidth + arrowSize) + circleBounds.centerX());
+        int bY = (int) (sin * (circleRadius + barWidth + arrowSize) + circleBounds.centerY());
+
+        int cX = (int) (-sin * arrowSize * 2);
+        int cY = (int) (cos * arrowSize * 2);
+
+        arrowPath.rewind();
+        arrowPath.setFillType(Path.FillType.EVEN_ODD);
+        arrowPath.moveTo(aX, aY);
+        arrowPath.lineTo(aX, aY);
+        arrowPath.lineTo(bX, bY);
+        arrowPath.lineTo(x + cX, y + cY);
+        arrowPath.close();
+
+        canvas.drawPath(arrowPath, frame.arrowPaint);
+    }
+}
@@ -0,0 +1,50 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * A {@link RenderTarget} backed by a bitmap, to run a {@link WheelRenderLoop}
+ * headless, for example in a JVM test: the last frame posted stays in the bitmap.
+ */
+public class BitmapRenderTarget implements RenderTarget {
+    private final Bitmap bitmap;
+    private final Canvas canvas;
+    private volatile int framesPosted = 0;
+
+    public BitmapRenderTarget(int width, int height) {
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(bitmap);
+    }
+
+    @Override
+    public Canvas lockCanvas() {
+        return canvas;
+    }
+
+    @Override
+    public void unlockCanvasAndPost(Canvas canvas) {
+        framesPosted++;
+    }
+
+    @Override
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+
+    /**
+     * @return the bitmap with the last frame posted, only read it while the loop is not drawing
+     */
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    public int getFramesPosted() {
+        return framesPosted;
+    }
+}
@@ -0,0 +1,137 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+
+import java.util.Arrays;
+
+/**
+ * A sequence of colors for the bar of a {@link ProgressWheel}, cross-fading from one color
+ * to the next one. The ARGB interpolation between each pair of colors is precomputed,
+ * so getting the color of a frame is only a table lookup.
+ * <p/>
+ * The ramp is immutable and shared by the wheels of a {@link WheelStyle},
+ * each wheel keeps its own position in the sequence.
+ */
+class ColorRamp {
+    // Number of precomputed colors for each cross-fade
+    private static final int steps = 32;
+
+    private final int[] colors;
+    private final long crossFadeTime;
+    // steps entries for each transition from colors[i] to colors[i + 1]
+    private final int[] table;
+    // Tints of a white bar gradient for the colors and the table, built on first use
+    private final PorterDuffColorFilter[] colorTints;
+    private final PorterDuffColorFilter[] tableTints;
+
+    /**
+     * @param colors        the colors of the sequence, at least one
+     * @param crossFadeTime the duration of the transition between two colors, in milliseconds
+     */
+    ColorRamp(int[] colors, long crossFadeTime) {
+        if (colors == null || colors.length == 0) {
+            throw new IllegalArgumentException("The color sequence needs at least one color");
+        }
+        this.colors = colors.clone();
+        this.crossFadeTime = crossFadeTime;
+
+        table = new int[colors.length * steps];
+        colorTints = new PorterDuffColorFilter[colors.length];
+        tableTints = new PorterDuffColorFilter[table.length];
+        for (int i = 0; i < colors.length; i++) {
+            int from = colors[i];
+            int to = colors[(i + 1) % colors.length];
+            for (int step = 0; step < steps; step++) {
+                table[i * steps + step] = interpolate(from, to, (float) step / (steps - 1));
+            }
+        }
+    }
+
+    private static int interpolate(int from, int to, float fraction) {
+        int a = interpolateChannel(from >>> 24, to >>> 24, fraction);
+        int r = interpolateChannel((from >> 16) & 0xFF, (to >> 16) & 0xFF, fraction);
+        int g = interpolateChannel((from >> 8) & 0xFF, (to >> 8) & 0xFF, fraction);
+        int b = interpolateChannel(from & 0xFF, to & 0xFF, fraction);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static int interpolateChannel(int from, int to, float fraction) {
+        return Math.round(from + (to - from) * fraction);
+    }
+
+    /**
+     * @return the index of the color after the given one
+     */
+    int next(int index) {
+        return (index + 1) % colors.length;
+    }
+
+    /**
+     * @param index   the index of the current color of the sequence
+     * @param elapsed the time since the transition to the current color started,
+     *                negative if there was no transition
+     * @return the color to draw
+     */
+    int colorAt(int index, long elapsed) {
+        if (elapsed < 0 || elapsed >= crossFadeTime) {
+            return colors[index];
+        }
+
+        int previous = (index + colors.length - 1) % colors.length;
+        int step = (int) (elapsed * (steps - 1) / crossFadeTime);
+        return table[previous * steps + step];
+    }
+
+    /**
+     * @return the tint of a white bar gradient for {@link #colorAt(int, long)},
+     * the same filter for the same color so a cross-fade doesn't allocate after its first run
+     */
+    PorterDuffColorFilter tintAt(int index, long elapsed) {
+        if (elapsed < 0 || elapsed >= crossFadeTime) {
+            if (colorTints[index] == null) {
+                colorTints[index] = new PorterDuffColorFilter(colors[index], PorterDuff.Mode.SRC_IN);
+            }
+            return colorTints[index];
+        }
+
+        int previous = (index + colors.length - 1) % colors.length;
+        int position = previous * steps + (int) (elapsed * (steps - 1) / crossFadeTime);
+        if (tableTints[position] == null) {
+            tableTints[position] = new PorterDuffColorFilter(table[position], PorterDuff.Mode.SRC_IN);
+        }
+        return tableTints[position];
+    }
+
+    /**
+     * @return true while the transition that started elapsed milliseconds ago is running
+     */
+    boolean isFading(long elapsed) {
+        return elapsed >= 0 && elapsed < crossFadeTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColorRamp)) {
+            return false;
+        }
+        ColorRamp other = (ColorRamp) o;
+        return crossFadeTime == other.crossFadeTime && Arrays.equals(colors, other.colors);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(colors) + (int) (crossFadeTime ^ (crossFadeTime >>> 32));
+    }
+
+    int[] getColors() {
+        return colors.clone();
+    }
+
+    long getCrossFadeTime() {
+        return crossFadeTime;
+    }
+}
@@ -0,0 +1,251 @@
+package com.pnikosis.materialishprogress;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A fixed size ring buffer with the frame timestamps and state changes of a
+ * {@link ProgressWheel}, to reproduce a janky spinner off-device with the
+ * {@link FrameTraceReplayer}.
+ * <p/>
+ * All the memory is allocated in the constructor, recording doesn't allocate.
+ * When the buffer is full the oldest events are dropped, they are folded into
+ * the initial state of the trace so the replay stays exact.
+ */
+public class FrameTrace {
+    static final byte FRAME = 0;
+    static final byte SPIN = 1;
+    static final byte STOP_SPINNING = 2;
+    static final byte RESET_COUNT = 3;
+    static final byte CANCEL_SPIN = 4;
+    static final byte SET_PROGRESS = 5;
+    static final byte SET_INSTANT_PROGRESS = 6;
+    static final byte VISIBILITY = 7;
+    static final byte SPIN_SPEED = 8;
+    static final byte PULL = 9;
+    static final byte BAR_SPIN_CYCLE_TIME = 10;
+    static final byte RESET_TIME = 11;
+    static final byte CLEAR_SPINNING = 12;
+
+    private static final int MAGIC = 0x57484c54;
+    // 2 added PULL and the pulling state of the origin, 3 the cycle time, time reset and
+    // clear spinning events; the older traces are still read
+    private static final int VERSION = 3;
+
+    private final byte[] types;
+    private final long[] times;
+    private final float[] values;
+    // The state of the wheel before the oldest event of the buffer
+    private final WheelAnimator origin = new WheelAnimator();
+    private int head = 0;
+    private int count = 0;
+
+    /**
+     * @param capacity the maximum number of events kept, a spinning
+     *                 wheel records one event per frame
+     */
+    public FrameTrace(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        types = new byte[capacity];
+        times = new long[capacity];
+        values = new float[capacity];
+    }
+
+    /**
+     * Clear the buffer and start from the given state
+     */
+    void begin(WheelAnimator state) {
+        origin.copyFrom(state);
+        head = 0;
+        count = 0;
+    }
+
+    void record(byte type, long time, float value) {
+        int index = (head + count) % types.length;
+        if (count == types.length) {
+            // Full, fold the oldest event in the initial state
+            apply(origin, types[head], times[head], values[head]);
+            head = (head + 1) % types.length;
+        } else {
+            count++;
+        }
+        types[index] = type;
+        times[index] = time;
+        values[index] = value;
+    }
+
+    /**
+     * @return the number of events in the trace
+     */
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return types.length;
+    }
+
+    byte typeAt(int i) {
+        return types[(head + i) % types.length];
+    }
+
+    long timeAt(int i) {
+        return times[(head + i) % types.length];
+    }
+
+    float valueAt(int i) {
+        return values[(head + i) % types.length];
+    }
+
+    /**
+     * Copy the initial state of the trace into the given animator
+     */
+    void restoreOrigin(WheelAnimator state) {
+        state.copyFrom(origin);
+    }
+
+    /**
+     * Feed a recorded event to the animator
+     *
+     * @return the frame flags if the event is a frame, 0 otherwise
+     */
+    static int apply(WheelAnimator state, byte type, long time, float value) {
+        switch (type) {
+            case FRAME:
+                return state.advance(time);
+            case SPIN:
+                state.spin(time);
+                break;
+            case STOP_SPINNING:
+                state.stopSpinning(time);
+                break;
+            case RESET_COUNT:
+                state.resetCount(time);
+                break;
+            case CANCEL_SPIN:
+                state.cancelSpin(time);
+                break;
+            case SET_PROGRESS:
+                state.setProgress(value, time);
+                break;
+            case SET_INSTANT_PROGRESS:
+                state.setInstantProgress(value, time);
+                break;
+            case VISIBILITY:
+                state.setVisible(value != 0, time);
+                break;
+            case SPIN_SPEED:
+                state.setSpinSpeed(value, time);
+                break;
+            case PULL:
+                state.pull(value, time);
+                break;
+            case BAR_SPIN_CYCLE_TIME:
+                state.setBarSpinCycleTime(value, time);
+                break;
+            case RESET_TIME:
+                state.resetTime(time);
+                break;
+            case CLEAR_SPINNING:
+                state.clearSpinning(time);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown event type " + type);
+        }
+        return 0;
+    }
+
+    /**
+     * Write the trace in a compact binary format, readable with {@link #readFrom(InputStream)}
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeDouble(origin.timeStartGrowing);
+        out.writeDouble(origin.barSpinCycleTime);
+        out.writeFloat(origin.barExtraLength);
+        out.writeBoolean(origin.barGrowingFromFront);
+        out.writeLong(origin.pausedTimeWithoutGrowing);
+        out.writeFloat(origin.spinSpeed);
+        out.writeLong(origin.lastTimeAnimated);
+        out.writeFloat(origin.mProgress);
+        out.writeFloat(origin.mTargetProgress);
+        out.writeBoolean(origin.isSpinning);
+        out.writeBoolean(origin.isStartingArrow);
+        out.writeBoolean(origin.isFinishingArrow);
+        out.writeBoolean(origin.isPostFinishingArrow);
+        out.writeBoolean(origin.isPulling);
+
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeByte(typeAt(i));
+            out.writeLong(timeAt(i));
+            out.writeFloat(valueAt(i));
+        }
+        out.flush();
+    }
+
+    private static byte lastEventType(int version) {
+        switch (version) {
+            case 1:
+                return SPIN_SPEED;
+            case 2:
+                return PULL;
+            default:
+                return CLEAR_SPINNING;
+        }
+    }
+
+    /**
+     * Read a trace written with {@link #writeTo(OutputStream)}
+     */
+    public static FrameTrace readFrom(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a frame trace");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported frame trace version " + version);
+        }
+
+        WheelAnimator state = new WheelAnimator();
+        state.timeStartGrowing = in.readDouble();
+        state.barSpinCycleTime = in.readDouble();
+        state.barExtraLength = in.readFloat();
+        state.barGrowingFromFront = in.readBoolean();
+        state.pausedTimeWithoutGrowing = in.readLong();
+        state.spinSpeed = in.readFloat();
+        state.lastTimeAnimated = in.readLong();
+        state.mProgress = in.readFloat();
+        state.mTargetProgress = in.readFloat();
+        state.isSpinning = in.readBoolean();
+        state.isStartingArrow = in.readBoolean();
+        state.isFinishingArrow = in.readBoolean();
+        state.isPostFinishingArrow = in.readBoolean();
+        if (version >= 2) {
+            state.isPulling = in.readBoolean();
+        }
+
+        int size = in.readInt();
+        FrameTrace trace = new FrameTrace(Math.max(size, 1));
+        trace.begin(state);
+        for (int i = 0; i < size; i++) {
+            byte type = in.readByte();
+            if (type < FRAME || type > lastEventType(version)) {
+                throw new IOException("Unknown event type " + type + " in a version " + version + " frame trace");
+            }
+            long time = in.readLong();
+            float value = in.readFloat();
+            trace.record(type, time, value);
+        }
+        return trace;
+    }
+}
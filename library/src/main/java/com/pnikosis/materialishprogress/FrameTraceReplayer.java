@@ -0,0 +1,90 @@
+package com.pnikosis.materialishprogress;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/**
+ * Replays a {@link FrameTrace} through the animation logic of the {@link ProgressWheel},
+ * printing the position of the bar for each recorded frame and the time spent computing it.
+ * <p/>
+ * It has no Android dependency, it can be run on a desktop JVM against a trace pulled from a device:
+ * <pre>
+ * java -cp classes com.pnikosis.materialishprogress.FrameTraceReplayer wheel.trace [passes]
+ * </pre>
+ * With more than one pass, the timings of the last one are reported, so the JIT is warmed up.
+ */
+public class FrameTraceReplayer {
+    private final FrameTrace trace;
+    private final WheelAnimator state = new WheelAnimator();
+
+    public FrameTraceReplayer(FrameTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Replay the whole trace
+     *
+     * @param out where to print the frames, or null to only measure
+     * @return the total time spent in the animation logic for the frames, in nanoseconds
+     */
+    public long replay(PrintStream out) {
+        trace.restoreOrigin(state);
+        if (out != null) {
+            out.println("frame\ttime\tfrom\tlength\tarrow\tspinning\tnanos");
+        }
+
+        long totalNanos = 0;
+        int frame = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            byte type = trace.typeAt(i);
+            long time = trace.timeAt(i);
+            if (type != FrameTrace.FRAME) {
+                FrameTrace.apply(state, type, time, trace.valueAt(i));
+                continue;
+            }
+
+            long start = System.nanoTime();
+            int flags = state.advance(time);
+            long nanos = System.nanoTime() - start;
+            totalNanos += nanos;
+
+            if (out != null) {
+                float from = state.mProgress - 90;
+                float length = WheelAnimator.barLength + state.barExtraLength;
+                boolean arrow = (flags & WheelAnimator.FRAME_SHOW_ARROW) != 0;
+                out.println(frame + "\t" + time + "\t" + from + "\t" + length + "\t" + arrow
+                        + "\t" + state.isSpinning + "\t" + nanos);
+            }
+            frame++;
+        }
+
+        if (out != null) {
+            out.println("# " + frame + " frames, " + totalNanos / Math.max(frame, 1) + " ns per frame");
+        }
+        return totalNanos;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: FrameTraceReplayer <trace file> [passes]");
+            System.exit(1);
+        }
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        FrameTrace trace;
+        InputStream in = new FileInputStream(args[0]);
+        try {
+            trace = FrameTrace.readFrom(in);
+        } finally {
+            in.close();
+        }
+
+        FrameTraceReplayer replayer = new FrameTraceReplayer(trace);
+        for (int i = 1; i < passes; i++) {
+            replayer.replay(null);
+        }
+        replayer.replay(System.out);
+    }
+}
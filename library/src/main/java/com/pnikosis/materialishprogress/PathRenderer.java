@@ -0,0 +1,34 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Canvas;
+import android.graphics.Path;
+
+/**
+ * Draws the bar and the line arrow with a reused {@link Path} instead of drawArc and drawLine
+ */
+public class PathRenderer extends ArcRenderer {
+    private final Path barPath = new Path();
+    private final Path linesPath = new Path();
+
+    @Override
+    public String getName() {
+        return "path";
+    }
+
+    @Override
+    protected void drawBar(Canvas canvas, Frame frame) {
+        barPath.rewind();
+        barPath.addArc(frame.bounds, frame.from, frame.length);
+        canvas.drawPath(barPath, frame.barPaint);
+    }
+
+    @Override
+    protected void drawLineArrow(Canvas canvas, Frame frame, float[] lines) {
+        linesPath.rewind();
+        linesPath.moveTo(lines[0], lines[1]);
+        linesPath.lineTo(lines[2], lines[3]);
+        linesPath.moveTo(lines[4], lines[5]);
+        linesPath.lineTo(lines[6], lines[7]);
+        canvas.drawPath(linesPath, frame.arrowPaint);
+    }
+}
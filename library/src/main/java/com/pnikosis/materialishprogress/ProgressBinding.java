@@ -0,0 +1,164 @@
+package com.pnikosis.materialishprogress;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shows the progress emitted by a publisher on a {@link ProgressWheel}, with
+ * frame-paced backpressure: a single item is requested at a time, the next one once the
+ * previous one has been shown on a frame. The producers are never blocked, and when they
+ * emit faster anyway only the latest value is kept.
+ * <p/>
+ * A value between 0 and 1 is shown with setProgress(), a negative value means the progress
+ * is unknown and makes the wheel spin. The wheel spins until the first value, and
+ * stopSpinning() is called when the publisher completes or fails.
+ * <p/>
+ * The interfaces have the method signatures of java.util.concurrent.Flow and Reactive Streams,
+ * so adapting a publisher from those is a matter of forwarding calls.
+ */
+public final class ProgressBinding {
+    private static final int NO_VALUE = Float.floatToRawIntBits(Float.NaN) ^ 1;
+    private static final long frameInterval = 1000 / 60;
+
+    private final ProgressWheel wheel;
+    // Not the queue of the wheel: before API 24 a view drops the runnables posted while it is detached
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean isFrameScheduled = new AtomicBoolean(false);
+    // The latest value not shown yet, as float bits
+    private final AtomicInteger pending = new AtomicInteger(NO_VALUE);
+    private volatile Subscription subscription;
+    private volatile boolean isTerminated = false;
+    private volatile boolean cancelled = false;
+
+    private final Runnable frame = new Runnable() {
+        @Override
+        public void run() {
+            isFrameScheduled.set(false);
+            if (cancelled) {
+                return;
+            }
+
+            // Read before the value, a value emitted before the termination is always seen
+            boolean terminated = isTerminated;
+            int bits = pending.getAndSet(NO_VALUE);
+            if (bits != NO_VALUE) {
+                show(Float.intBitsToFloat(bits));
+            }
+
+            if (terminated) {
+                cancelled = true;
+                wheel.stopSpinning();
+            } else if (bits != NO_VALUE) {
+                // Ready for the next frame
+                Subscription subscription = ProgressBinding.this.subscription;
+                if (subscription != null) {
+                    subscription.request(1);
+                }
+            }
+        }
+    };
+
+    private final Subscriber<Number> subscriber = new Subscriber<Number>() {
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            ProgressBinding.this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(Number item) {
+            pending.set(Float.floatToRawIntBits(item.floatValue()));
+            scheduleFrame();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            isTerminated = true;
+            scheduleFrame();
+        }
+
+        @Override
+        public void onComplete() {
+            isTerminated = true;
+            scheduleFrame();
+        }
+    };
+
+    private ProgressBinding(ProgressWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    /**
+     * Subscribe the wheel to the publisher, to call from the UI thread.
+     * The publisher may emit from any thread.
+     *
+     * @return the binding, unbind() it when the wheel goes away
+     */
+    public static ProgressBinding bind(ProgressWheel wheel, Publisher<? extends Number> publisher) {
+        ProgressBinding binding = new ProgressBinding(wheel);
+        // Nothing is known yet
+        wheel.spin();
+        publisher.subscribe(binding.subscriber);
+        return binding;
+    }
+
+    /**
+     * Cancel the subscription, the wheel keeps its current state
+     */
+    public void unbind() {
+        cancelled = true;
+        handler.removeCallbacks(frame);
+        Subscription subscription = this.subscription;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    public boolean isBound() {
+        return !cancelled;
+    }
+
+    private void show(float progress) {
+        if (progress < 0 || Float.isNaN(progress)) {
+            if (!wheel.isSpinning()) {
+                wheel.spin();
+            }
+        } else {
+            wheel.setProgress(progress);
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!isFrameScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        handler.postDelayed(frame, frameInterval);
+    }
+
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+        void request(long n);
+
+        void cancel();
+    }
+}
@@ -2,21 +2,25 @@ package com.pnikosis.materialishprogress;
 
 import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Paint.Style;
-import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
 import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.SweepGradient;
 import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.os.SystemClock;
 import android.provider.Settings;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
-import android.util.TypedValue;
 import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.widget.ProgressBar;
 
 /**
  * A Material style progress wheel, compatible up to 2.2.
@@ -28,54 +32,104 @@ import android.view.View;
  *         http://www.apache.org/licenses/LICENSE-2.0
  */
 public class ProgressWheel extends View {
+    /**
+     * Spin budget levels, see {@link #setSpinBudget(long, long)}
+     */
+    public static final int SPIN_BUDGET_FULL = 0;
+    public static final int SPIN_BUDGET_REDUCED_FRAME_RATE = 1;
+    public static final int SPIN_BUDGET_SIMPLIFIED = 2;
     private static final String TAG = ProgressWheel.class.getSimpleName();
-    private final int barLength = 16;
-    private final int barMaxLength = 270;
-    private final long pauseGrowingTime = 200;
-    /**
-     * *********
-     * DEFAULTS *
-     * **********
-     */
-    //Sizes (with defaults in DP)
-    private int circleRadius = 28;
-    private int barWidth = 4;
-    private int rimWidth = 4;
-    private boolean fillRadius = false;
-    private double timeStartGrowing = 0;
-    private double barSpinCycleTime = 460;
-    private float barExtraLength = 0;
-    private boolean barGrowingFromFront = false;
-    private long pausedTimeWithoutGrowing = 0;
-    //Colors (with defaults)
-    private int barColor = 0xAA000000;
-    private int rimColor = 0x00FFFFFF;
-    //Paints
-    private Paint barPaint = new Paint();
-    private Paint rimPaint = new Paint();
+    private final long reducedFrameInterval = 1000 / 15;
+    private final long rimPulseTime = 1200;
+    //Look of the wheel, sizes, colors and the paints derived from them,
+    //shared with the other wheels of the same style
+    private WheelStyle style = WheelStyle.DEFAULT;
+    //Paints, the ones of the style unless the wheel has to change them for each frame
+    private Paint barPaint;
+    private Paint arrowPaint;
+    private Paint ownBarPaint;
+    private Paint ownArrowPaint;
+    private Paint pulsePaint;
     //Rectangles
-    private RectF circleBounds = new RectF();
+    private final RectF circleBounds = new RectF();
     //Animation
-    //The amount of degrees per second
-    private float spinSpeed = 230.0f;
-    //private float spinSpeed = 120.0f;
-    // The last time the spinner was animated
-    private long lastTimeAnimated = 0;
-    private boolean linearProgress;
-    private float mProgress = 0.0f;
-    private float mTargetProgress = 0.0f;
-    private boolean isSpinning = false;
+    private final WheelAnimator animator = new WheelAnimator();
     private ProgressCallback callback;
     private boolean shouldAnimate;
-    private boolean isLineArrow = false;
-    private int maxArrowLineLength = 15;
 
-    // FIXME use xml attribute
-    private boolean isStartingArrow = true;
-    private boolean isFinishingArrow = false;
-    private Paint arrowPaint;
-    private boolean isPostFinishingArrow = false;
-    private Path arrowPath = new Path();
+    private final WheelRenderer.Frame renderFrame = new WheelRenderer.Frame(circleBounds);
+    private WheelRenderer renderer = new ArcRenderer();
+    private RendererTuner rendererTuner;
+    // Position in the color sequence of the style, if it has one
+    private int colorIndex = 0;
+    private long colorFadeStart = -1;
+    private Editor editor;
+    private WheelState boundState;
+    // Editor.CHANGED_* flags of the setup to run before the next draw
+    private int pendingSetup = 0;
+    // Optional gradient along the bar, built once per size in white and tinted with the bar color
+    private Shader barShader;
+    private int barTintColor;
+    // The color of the bar, with a gradient it is only in the tint and the paint stays opaque
+    private int barColor;
+    private PorterDuffColorFilter barTint;
+    // Created with the first gradient, most wheels don't have one
+    private Matrix barShaderMatrix;
+
+    //Spin budget, disabled by default
+    private long reducedFrameRateAfter = 0;
+    private long simplifiedAfter = 0;
+    private long spinningSince = -1;
+    private int spinBudgetLevel = SPIN_BUDGET_FULL;
+    private SpinBudgetCallback spinBudgetCallback;
+
+    //Accessibility, progress events are throttled like a ProgressBar does
+    private long accessibilityEventInterval = 200;
+    private float accessibilityEventMinStep = 0.01f;
+    private long lastAccessibilityEventTime = 0;
+    private float lastAccessibilityProgress = -1;
+    private boolean isAccessibilityEventPending = false;
+    private AccessibilityManager accessibilityManager;
+    private final Runnable accessibilityEventSender = new Runnable() {
+        @Override
+        public void run() {
+            sendProgressAccessibilityEvent();
+        }
+    };
+
+    //Spin debouncing, disabled by default
+    private long spinShowDelay = 0;
+    private long spinMinShowTime = 0;
+    private long spinShownSince = -1;
+    private boolean isSpinPending = false;
+    private boolean isStopPending = false;
+    // When the pending spin or stop is applied, in the time of WheelClock.now()
+    private long pendingSpinStateAt = -1;
+    private long skippedSpins = 0;
+    private long coalescedStops = 0;
+    private final Runnable pendingSpinState = new Runnable() {
+        @Override
+        public void run() {
+            // A test clock installed since it was posted applies it from now on
+            WheelClock.register(ProgressWheel.this);
+            runDueSpinState(WheelClock.now());
+        }
+    };
+
+    // The start angle of the last draw and the progress updates too small to redraw
+    private float drawnFrom = Float.NaN;
+    private float redrawThreshold = 1;
+    private long suppressedRedraws = 0;
+
+    // The frame advanced last, see WheelClock
+    private long lastFrameTime = -1;
+    private int lastFrameFlags = 0;
+
+    //Read by the WheelRegistry
+    boolean isAttached = false;
+    // The test clock the wheel follows, null on SystemClock
+    WheelClock clock;
+    long framesDrawn = 0;
 
     /**
      * The constructor for the ProgressWheel
@@ -83,9 +137,11 @@ public class ProgressWheel extends View {
     public ProgressWheel(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        parseAttributes(context.obtainStyledAttributes(attrs, R.styleable.ProgressWheel));
+        initStyle(WheelStyle.obtain(context, attrs));
 
         setAnimationEnabled();
+        WheelRegistry.register(this);
+        WheelClock.register(this);
 
     }
 
@@ -94,7 +150,10 @@ public class ProgressWheel extends View {
      */
     public ProgressWheel(Context context) {
         super(context);
+        initStyle(WheelStyle.DEFAULT);
         setAnimationEnabled();
+        WheelRegistry.register(this);
+        WheelClock.register(this);
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
@@ -121,8 +180,8 @@ public class ProgressWheel extends View {
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 
-        int viewWidth = circleRadius + this.getPaddingLeft() + this.getPaddingRight();
-        int viewHeight = circleRadius + this.getPaddingTop() + this.getPaddingBottom();
+        int viewWidth = style.circleRadius + this.getPaddingLeft() + this.getPaddingRight();
+        int viewHeight = style.circleRadius + this.getPaddingTop() + this.getPaddingBottom();
 
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
         int widthSize = MeasureSpec.getSize(widthMeasureSpec);
@@ -162,125 +221,227 @@ public class ProgressWheel extends View {
     /**
      * Use onSizeChanged instead of onAttachedToWindow to get the dimensions of the view,
      * because this method is called after measuring the dimensions of MATCH_PARENT & WRAP_CONTENT.
-     * Use this dimensions to setup the bounds and paints.
+     * Use this dimensions to setup the bounds and paints, on the next draw.
      */
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
 
-        setupBounds(w, h);
-        setupPaints();
+        pendingSetup |= Editor.CHANGED_PAINTS | Editor.CHANGED_BOUNDS;
         invalidate();
     }
 
     /**
-     * Set the properties of the paints we're using to
-     * draw the progress wheel
+     * Set the paints we're using to draw the progress wheel,
+     * the ones of the style are used unless the wheel changes them for each frame
      */
     private void setupPaints() {
-        barPaint.setColor(barColor);
-        barPaint.setAntiAlias(true);
-        barPaint.setStyle(Style.STROKE);
-        barPaint.setStrokeWidth(barWidth);
-
-        rimPaint.setColor(rimColor);
-        rimPaint.setAntiAlias(true);
-        rimPaint.setStyle(Style.STROKE);
-        rimPaint.setStrokeWidth(rimWidth);
-
+        if (style.colorRamp != null || style.barGradient) {
+            if (ownBarPaint == null) {
+                ownBarPaint = new Paint();
+                ownArrowPaint = new Paint();
+            }
+            ownBarPaint.set(style.barPaint);
+            ownArrowPaint.set(style.arrowPaint);
+            barPaint = ownBarPaint;
+            arrowPaint = ownArrowPaint;
+
+            if (style.colorRamp != null) {
+                int color = getSequenceColor(WheelClock.now());
+                barPaint.setColor(color);
+                arrowPaint.setColor(color);
+            }
+        } else {
+            barPaint = style.barPaint;
+            arrowPaint = style.arrowPaint;
+        }
+        barColor = barPaint.getColor();
 
-        arrowPaint = new Paint();
-        arrowPaint.setAntiAlias(true);
-        arrowPaint.setColor(barColor);
+        setupBarShader();
     }
 
     /**
-     * Set the bounds of the component
+     * @return the color of the bar in the color sequence of the style
      */
-    private void setupBounds(int layout_width, int layout_height) {
-        int paddingTop = getPaddingTop();
-        int paddingBottom = getPaddingBottom();
-        int paddingLeft = getPaddingLeft();
-        int paddingRight = getPaddingRight();
-
-        if (!fillRadius) {
-            // Width should equal to Height, find the min value to setup the circle
-            int minValue = Math.min(layout_width - paddingLeft - paddingRight,
-                    layout_height - paddingBottom - paddingTop);
+    private int getSequenceColor(long now) {
+        return style.colorRamp.colorAt(colorIndex, colorFadeStart < 0 ? -1 : now - colorFadeStart);
+    }
 
-            int circleDiameter = Math.min(minValue, circleRadius * 2 - barWidth * 2);
+    /**
+     * Build the gradient of the bar for the current bounds, from transparent at 0 degrees
+     * to opaque at 360 degrees, in white: the bar color is a tint over it, so a new color
+     * doesn't build the gradient again. Each frame only rotates it, see {@link #onDraw(Canvas)}
+     */
+    private void setupBarShader() {
+        if (!style.barGradient) {
+            barShader = null;
+            barTint = null;
+            return;
+        }
 
-            // Calc the Offset if needed for centering the wheel in the available space
-            int xOffset = (layout_width - paddingLeft - paddingRight - circleDiameter) / 2 + paddingLeft;
-            int yOffset = (layout_height - paddingTop - paddingBottom - circleDiameter) / 2 + paddingTop;
+        barShader = new SweepGradient(circleBounds.centerX(), circleBounds.centerY(),
+                0x00FFFFFF, 0xFFFFFFFF);
+        if (barShaderMatrix == null) {
+            barShaderMatrix = new Matrix();
+        }
+        barPaint.setShader(barShader);
+        // The alpha of the color is in the tint, the paint would apply it a second time
+        barPaint.setAlpha(0xFF);
+        barTint = null;
+        updateBarTint();
+    }
 
-            circleBounds =
-                    new RectF(xOffset + barWidth, yOffset + barWidth, xOffset + circleDiameter - barWidth,
-                            yOffset + circleDiameter - barWidth);
+    /**
+     * Tint the white gradient with the color of the bar, only when the color changed.
+     * The tints of a color sequence come from its ramp, shared by the wheels of the style
+     */
+    private void updateBarTint() {
+        int color = barColor;
+        if (barTint != null && color == barTintColor) {
+            return;
+        }
+        barTintColor = color;
+        if (style.colorRamp != null) {
+            barTint = style.colorRamp.tintAt(colorIndex, colorFadeStart < 0 ? -1 : WheelClock.now() - colorFadeStart);
         } else {
-            circleBounds = new RectF(paddingLeft + barWidth, paddingTop + barWidth,
-                    layout_width - paddingRight - barWidth, layout_height - paddingBottom - barWidth);
+            barTint = new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN);
         }
+        barPaint.setColorFilter(barTint);
     }
 
     /**
-     * Parse the attributes passed to the view from the XML
-     *
-     * @param a the attributes to parse
+     * Set the bounds of the component
      */
-    private void parseAttributes(TypedArray a) {
-        // We transform the default values from DIP to pixels
-        DisplayMetrics metrics = getContext().getResources().getDisplayMetrics();
-        barWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, barWidth, metrics);
-        rimWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, rimWidth, metrics);
-        circleRadius =
-                (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, circleRadius, metrics);
-
-        circleRadius =
-                (int) a.getDimension(R.styleable.ProgressWheel_matProg_circleRadius, circleRadius);
-
-        fillRadius = a.getBoolean(R.styleable.ProgressWheel_matProg_fillRadius, false);
-
-        barWidth = (int) a.getDimension(R.styleable.ProgressWheel_matProg_barWidth, barWidth);
-        maxArrowLineLength = (int) a.getDimension(R.styleable.ProgressWheel_matProg_arrowLineLength, maxArrowLineLength);
-
-        rimWidth = (int) a.getDimension(R.styleable.ProgressWheel_matProg_rimWidth, rimWidth);
-
-        float baseSpinSpeed =
-                a.getFloat(R.styleable.ProgressWheel_matProg_spinSpeed, spinSpeed / 360.0f);
-        spinSpeed = baseSpinSpeed * 360;
+    private void setupBounds(int layout_width, int layout_height) {
+        style.computeBounds(circleBounds, layout_width, layout_height,
+                getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+    }
 
-        barSpinCycleTime =
-                a.getInt(R.styleable.ProgressWheel_matProg_barSpinCycleTime, (int) barSpinCycleTime);
+    /**
+     * Use the style passed to the view from the XML,
+     * the paints and the bounds are set up later, on the first draw
+     *
+     * @param style the parsed attributes, shared with the other wheels inflated with the same ones
+     */
+    private void initStyle(WheelStyle style) {
+        this.style = style;
+        long now = WheelClock.now();
+        animator.setSpinSpeed(style.spinSpeed, now);
+        animator.setBarSpinCycleTime(style.barSpinCycleTime, now);
+
+        if (style.indeterminate) {
+            // Not spin(), there is nothing to invalidate before the first layout
+            animator.spin(now);
+            spinShownSince = now;
+        }
+        animator.resetTime(now);
+        pendingSetup = Editor.CHANGED_PAINTS | Editor.CHANGED_BOUNDS;
+    }
 
-        barColor = a.getColor(R.styleable.ProgressWheel_matProg_barColor, barColor);
+    /**
+     * Puts the wheel in the given state at once, for a wheel in a recycled list item.
+     * Nothing is set up again and the callbacks are not run, the wheel is invalidated once.
+     *
+     * @param state the state of the item, it gets the state of the wheel back on unbind()
+     */
+    public void bind(WheelState state) {
+        if (boundState != null) {
+            unbind();
+        }
+        boundState = state;
+
+        applyPendingSpinState();
+        state.restore(animator, WheelClock.now());
+        // The last frame was the one of the previous item
+        lastFrameTime = -1;
+        lastFrameFlags = 0;
+        spinShownSince = -1;
+        colorIndex = 0;
+        colorFadeStart = -1;
+        spinningSince = -1;
+        spinBudgetLevel = SPIN_BUDGET_FULL;
+        removeCallbacks(accessibilityEventSender);
+        isAccessibilityEventPending = false;
+        lastAccessibilityProgress = getAccessibilityProgress();
+        if (animator.trace != null) {
+            // The bound state is not an event of the trace, start it again from here
+            animator.trace.begin(animator);
+        }
+        invalidate();
+    }
 
-        rimColor = a.getColor(R.styleable.ProgressWheel_matProg_rimColor, rimColor);
+    /**
+     * Saves the state of the wheel in the bound state and leaves the wheel at rest
+     * until it is bound again
+     */
+    public void unbind() {
+        if (boundState == null) {
+            return;
+        }
+        applyPendingSpinState();
+        boundState.save(animator);
+        boundState = null;
 
-        linearProgress = a.getBoolean(R.styleable.ProgressWheel_matProg_linearProgress, false);
+        animator.clearSpinning(WheelClock.now());
+        removeCallbacks(accessibilityEventSender);
+        isAccessibilityEventPending = false;
+    }
 
-        isLineArrow = a.getBoolean(R.styleable.ProgressWheel_matProg_lineArrow, false);
+    public void setCallback(ProgressCallback progressCallback) {
+        callback = progressCallback;
 
-        if (a.getBoolean(R.styleable.ProgressWheel_matProg_progressIndeterminate, false)) {
-            spin();
+        if (!animator.isSpinning) {
+            runCallback();
         }
-        lastTimeAnimated = SystemClock.uptimeMillis();
-        start();
-
-        // Recycle
-        a.recycle();
     }
 
-    private void start() {
+    /**
+     * Sets how the bar and the arrow are drawn, the default is an {@link ArcRenderer}.
+     * A running tuning is stopped.
+     */
+    public void setRenderer(WheelRenderer renderer) {
+        this.renderer = renderer;
+        rendererTuner = null;
         invalidate();
     }
 
-    public void setCallback(ProgressCallback progressCallback) {
-        callback = progressCallback;
+    public WheelRenderer getRenderer() {
+        return renderer;
+    }
 
-        if (!isSpinning) {
-            runCallback();
+    /**
+     * Let the tuner pick the fastest renderer, from the next frames or from an earlier tuning
+     * on the device, the tuner must not be shared with another wheel
+     */
+    public void setRendererTuner(RendererTuner tuner) {
+        rendererTuner = tuner;
+        if (tuner != null) {
+            tuner.load(this);
         }
+        invalidate();
+    }
+
+    /**
+     * Start recording the frames and the state changes of the wheel in the given trace,
+     * it can be replayed later with the {@link FrameTraceReplayer}.
+     * The recording doesn't allocate memory while it is active.
+     *
+     * @param trace the trace to record into, its previous content is cleared
+     */
+    public void startFrameTrace(FrameTrace trace) {
+        trace.begin(animator);
+        animator.trace = trace;
+    }
+
+    /**
+     * Stop recording the frames
+     *
+     * @return the trace that was recording, or null if there was none
+     */
+    public FrameTrace stopFrameTrace() {
+        FrameTrace trace = animator.trace;
+        animator.trace = null;
+        return trace;
     }
 
     //----------------------------------
@@ -290,235 +451,563 @@ public class ProgressWheel extends View {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        canvas.drawArc(circleBounds, 360, 360, false, rimPaint);
+        if (pendingSetup != 0) {
+            runPendingSetup();
+        }
 
-        boolean mustInvalidate = false;
+        canvas.drawArc(circleBounds, 360, 360, false, style.rimPaint);
 
         if (!shouldAnimate) {
             return;
         }
 
-        if (isSpinning) {
-            //Draw the spinning bar
-            mustInvalidate = true;
+        // A wheel created before the test clock was installed follows it from its next frame
+        WheelClock.register(this);
+        long now = WheelClock.now();
+        // A frame stepped by the test clock is drawn without advancing it again
+        int frame = clock != null && now == lastFrameTime ? lastFrameFlags : advanceFrame(now);
+
+        float from = animator.mProgress - 90;
+        float length = WheelAnimator.barLength + animator.barExtraLength;
+
+        if (isInEditMode()) {
+            from = 0;
+            length = 135;
+        } else if ((frame & WheelAnimator.FRAME_INVALIDATE) == 0) {
+            // A still frame is drawn on the steps of the redraw threshold,
+            // so an update within the same step would draw exactly the same
+            from = snapToRedrawThreshold(from);
         }
-        long deltaTime = (SystemClock.uptimeMillis() - lastTimeAnimated) / 2;
-        float deltaNormalized = deltaTime * spinSpeed / 1000.0f;
-        if (!isSpinning) {
-            pausedTimeWithoutGrowing = pauseGrowingTime;
-            timeStartGrowing = 0;
-            deltaTime = 0;
+        drawnFrom = from;
+
+        if (spinBudgetLevel == SPIN_BUDGET_SIMPLIFIED) {
+            drawRimPulse(canvas, now);
+        } else {
+            if (barShader != null) {
+                // The color sequence may have moved on
+                updateBarTint();
+                // The opaque end of the gradient follows the head of the bar
+                barShaderMatrix.setRotate(from + length, circleBounds.centerX(), circleBounds.centerY());
+                barShader.setLocalMatrix(barShaderMatrix);
+            }
+            renderFrame.width = getWidth();
+            renderFrame.height = getHeight();
+            renderFrame.from = from;
+            renderFrame.length = length;
+            renderFrame.showArrow = (frame & WheelAnimator.FRAME_SHOW_ARROW) != 0;
+            renderFrame.barPaint = barPaint;
+            renderFrame.arrowPaint = arrowPaint;
+            renderFrame.style = style;
+            drawFrame(canvas);
         }
 
-        updateBarLength(deltaTime);
 
-        mProgress += deltaNormalized;
-        if (mProgress > 360) {
-            mProgress -= 360f;
+        if ((frame & WheelAnimator.FRAME_INVALIDATE) != 0 && clock == null) {
+            if (spinBudgetLevel == SPIN_BUDGET_FULL) {
+                invalidate();
+            } else {
+                postInvalidateDelayed(reducedFrameInterval);
+            }
+        }
+    }
+
+    /**
+     * Advance the animation and everything that follows it for a frame at the given time
+     *
+     * @return the WheelAnimator.FRAME_* flags of the frame
+     */
+    private int advanceFrame(long now) {
+        int frame = animator.advance(now);
+        updateSpinBudget(now);
+        framesDrawn++;
+
+        if ((frame & WheelAnimator.FRAME_TURN_COMPLETED) != 0) {
+            if (style.colorRamp != null) {
+                colorIndex = style.colorRamp.next(colorIndex);
+                colorFadeStart = now;
+            }
 
             // A full turn has been completed
             // we run the callback with -1 in case we want to
             // do something, like changing the color
             runCallback(-1.0f);
         }
-        lastTimeAnimated = SystemClock.uptimeMillis();
-
-        float from = mProgress - 90;
-        float length = barLength + barExtraLength;
 
-        if (isInEditMode()) {
-            from = 0;
-            length = 135;
+        if (style.colorRamp != null && barPaint != null) {
+            // Only the color of the wheel's paints changes, nothing is allocated
+            int color = getSequenceColor(now);
+            if (color != barColor) {
+                barColor = color;
+                if (barShader == null) {
+                    barPaint.setColor(color);
+                }
+                arrowPaint.setColor(color);
+            }
+        }
+        if (style.colorRamp != null && colorFadeStart >= 0 && style.colorRamp.isFading(now - colorFadeStart)) {
+            frame |= WheelAnimator.FRAME_INVALIDATE;
         }
 
-        canvas.drawArc(circleBounds, from, length, false, barPaint);
+        lastFrameTime = now;
+        lastFrameFlags = frame;
+        return frame;
+    }
 
-        if (barGrowingFromFront && isPostFinishingArrow) {
-            isFinishingArrow = true;
-            isPostFinishingArrow = false;
+    /**
+     * @return true if the {@link WheelClock} has to step the wheel
+     */
+    boolean needsFrame() {
+        return shouldAnimate
+                && (animator.isSpinning || (lastFrameFlags & WheelAnimator.FRAME_INVALIDATE) != 0);
+    }
+
+    /**
+     * Advance a frame of the {@link WheelClock} without drawing
+     */
+    void stepFrame(long now) {
+        if (now != lastFrameTime) {
+            advanceFrame(now);
         }
+    }
 
-        boolean isLastDrawArrow = false;
-        if (barGrowingFromFront) {
-            isStartingArrow = false;
+    /**
+     * The clock changed, the time since the last frame is not animated
+     */
+    void onClockChanged(long previousNow, long now) {
+        animator.resetTime(now);
+        lastFrameTime = -1;
+        if (spinningSince >= 0) {
+            spinningSince = now;
         }
-        if (isFinishingArrow && !barGrowingFromFront) {
-            isStartingArrow = false;
-            isFinishingArrow = false;
-            isSpinning = false;
-            mustInvalidate = false;
-            isLastDrawArrow = true;
+        // The debounce keeps the time it has left
+        if (spinShownSince >= 0) {
+            spinShownSince += now - previousNow;
         }
-
-        boolean startSpinning = !barGrowingFromFront && isStartingArrow;
-        boolean endSpinning = barGrowingFromFront && isFinishingArrow;
-        boolean isShowArrow = startSpinning || endSpinning || isLastDrawArrow;
-        if (isShowArrow) {
-            if (isLineArrow) {
-                drawLineArrow(canvas, from, length);
-            } else {
-                drawArrow(canvas, from, length);
-            }
+        if (isSpinPending || isStopPending) {
+            schedulePendingSpinState(pendingSpinStateAt + now - previousNow);
         }
+        invalidate();
+    }
 
+    private void drawFrame(Canvas canvas) {
+        if (rendererTuner == null) {
+            renderer.draw(canvas, renderFrame);
+            return;
+        }
 
-        if (mustInvalidate) {
-            invalidate();
+        if (!rendererTuner.isLoaded()) {
+            // The persisted choices are still being read
+            renderer.draw(canvas, renderFrame);
+            return;
+        }
+        if (!rendererTuner.isStarted()) {
+            rendererTuner.start(getRendererConfiguration(canvas));
+        }
+        if (rendererTuner.getSelected() != null) {
+            renderer = rendererTuner.getSelected();
+            rendererTuner = null;
+            renderer.draw(canvas, renderFrame);
+            return;
         }
-    }
 
-    private void drawLineArrow(Canvas canvas, float fromDegree, float lengthDegree) {
-        float progress = (barMaxLength - lengthDegree) / (barMaxLength - barLength);
-        System.out.println(progress);
+        WheelRenderer candidate = rendererTuner.getCandidate();
+        long start = System.nanoTime();
+        candidate.draw(canvas, renderFrame);
+        rendererTuner.onFrameDrawn(System.nanoTime() - start);
+    }
 
-        double sin = Math.sin(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress));
-        double cos = Math.cos(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress));
+    /**
+     * @return the device and the parts of the style that change the cost of drawing a frame
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private String getRendererConfiguration(Canvas canvas) {
+        boolean accelerated = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                && canvas.isHardwareAccelerated();
+        return Build.MANUFACTURER + " " + Build.MODEL + " " + Build.VERSION.SDK_INT
+                + "|accelerated=" + accelerated
+                + "|radius=" + style.circleRadius
+                + "|barWidth=" + style.barWidth
+                + "|lineArrow=" + style.lineArrow
+                + "|gradient=" + style.barGradient
+                + "|colors=" + (style.colorRamp != null);
+    }
 
-        double sin_45 = Math.sin(Math.toRadians(fromDegree + lengthDegree + 45 - 5 * progress));
-        double sin_minus_45 = Math.sin(Math.toRadians(fromDegree + lengthDegree - (45 - 5 * progress)));
+    /**
+     * The simplified spinner of the spin budget: the whole circle in the bar color,
+     * only its alpha changes
+     */
+    private void drawRimPulse(Canvas canvas, long now) {
+        float phase = (float) (now % rimPulseTime) / rimPulseTime;
+        float pulse = (float) Math.cos(phase * 2 * Math.PI) / 2 + 0.5f;
 
+        if (pulsePaint == null) {
+            pulsePaint = new Paint();
+        }
+        pulsePaint.set(style.barPaint);
+        int color = barColor;
+        pulsePaint.setColor(color);
+        pulsePaint.setAlpha((int) (Color.alpha(color) * (0.25f + 0.75f * pulse)));
+        canvas.drawArc(circleBounds, 360, 360, false, pulsePaint);
+    }
 
-        float arrowLength = maxArrowLineLength * (1 - progress);
-        int inX = (int) ((sin_minus_45 * maxArrowLineLength) * (1 - progress) + (sin * arrowLength) * progress);
-        int inY = (int) ((-sin_45 * maxArrowLineLength) * (1 - progress) + ((-cos * arrowLength) * progress));
+    private void updateSpinBudget(long now) {
+        if (!animator.isSpinning) {
+            spinningSince = -1;
+            setSpinBudgetLevel(SPIN_BUDGET_FULL, 0);
+            return;
+        }
+        if (spinningSince < 0) {
+            spinningSince = now;
+        }
 
-        float circleRadius = circleBounds.width() / 2;
+        long spinningTime = now - spinningSince;
+        int level = SPIN_BUDGET_FULL;
+        if (simplifiedAfter > 0 && spinningTime >= simplifiedAfter) {
+            level = SPIN_BUDGET_SIMPLIFIED;
+        } else if (reducedFrameRateAfter > 0 && spinningTime >= reducedFrameRateAfter) {
+            level = SPIN_BUDGET_REDUCED_FRAME_RATE;
+        }
+        setSpinBudgetLevel(level, spinningTime);
+    }
 
-        int inBaseX = (int) (cos * (circleRadius + barWidth / 4) + circleBounds.centerX());
-        int inBaseY = (int) (sin * (circleRadius + barWidth / 4) + circleBounds.centerY());
+    /**
+     * A visible state change gives the wheel its full frame rate back
+     * and starts counting the budget again
+     */
+    private void resetSpinBudget() {
+        long spinningTime = spinningSince < 0 ? 0 : WheelClock.now() - spinningSince;
+        spinningSince = -1;
+        setSpinBudgetLevel(SPIN_BUDGET_FULL, spinningTime);
+    }
 
-        double rotateSin = Math.sin(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress + 45 + progress * 115));
-        double rotateSinMinus = Math.sin(Math.toRadians(fromDegree + lengthDegree - (5 - 5 * progress + 45) + progress * 115));
-        double advancedSin = Math.sin(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress - progress * barWidth));
-        double advancedCos = Math.cos(Math.toRadians(fromDegree + lengthDegree + 5 - 5 * progress - progress * barWidth));
+    private void setSpinBudgetLevel(int level, long spinningTime) {
+        if (level == spinBudgetLevel) {
+            return;
+        }
+        spinBudgetLevel = level;
+        if (spinBudgetCallback != null) {
+            spinBudgetCallback.onSpinBudgetLevelChanged(level, spinningTime);
+        }
+    }
 
-        int outX = (int) (rotateSin * arrowLength);
-        int outY = (int) ((rotateSinMinus * arrowLength));
-        int outBaseX;
-        int outBaseY;
-        if (progress < 0.5f) {
-            outBaseX = (int) (advancedCos * (circleRadius + maxArrowLineLength * progress - barWidth / 4) + circleBounds.centerX());
-            outBaseY = (int) (advancedSin * (circleRadius + maxArrowLineLength * progress - barWidth / 4) + circleBounds.centerY());
-        } else {
-            outBaseX = (int) (advancedCos * (circleRadius + maxArrowLineLength * (1 - progress) - barWidth / 4) + circleBounds.centerX());
-            outBaseY = (int) (advancedSin * (circleRadius + maxArrowLineLength * (1 - progress) - barWidth / 4) + circleBounds.centerY());
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (animator == null) {
+            // Called by the constructor of View for android:visibility before API 24,
+            // before the fields of the wheel are set
+            return;
         }
 
-        arrowPaint.setStyle(Style.STROKE);
-        arrowPaint.setStrokeWidth(barWidth);
-        canvas.drawLine(inBaseX, inBaseY, inBaseX + inX, inBaseY + inY, arrowPaint);
-        canvas.drawLine(outBaseX, outBaseY, outBaseX + outX, outBaseY + outY, arrowPaint);
+        animator.setVisible(visibility == VISIBLE, WheelClock.now());
+        resetSpinBudget();
     }
 
-    private void drawArrow(Canvas canvas, float fromDegree, float lengthDegree) {
-        int arrowSize = (int) (barWidth * 2 * (1 - (barMaxLength - barExtraLength) / barMaxLength));
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
 
-        double sin = Math.sin(Math.toRadians(fromDegree + lengthDegree));
-        double cos = Math.cos(Math.toRadians(fromDegree + lengthDegree));
+        isAttached = true;
+        // Wheels created before the registry was enabled
+        WheelRegistry.register(this);
+        WheelClock.register(this);
+    }
 
-        float circleRadius = circleBounds.width() / 2;
-        int x = (int) (cos * circleRadius + circleBounds.centerX());
-        int y = (int) (sin * circleRadius + circleBounds.centerY());
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
 
-        int aX = (int) (cos * (circleRadius - barWidth - arrowSize) + circleBounds.centerX());
-        int aY = (int) (sin * (circleRadius - barWidth - arrowSize) + circleBounds.centerY());
-        int bX = (int) (cos * (circleRadius + barWidth + arrowSize) + circleBounds.centerX());
-        int bY = (int) (sin * (circleRadius + barWidth + arrowSize) + circleBounds.centerY());
+        isAttached = false;
 
-        int cX = (int) (-sin * arrowSize * 2);
-        int cY = (int) (cos * arrowSize * 2);
+        removeCallbacks(accessibilityEventSender);
+        isAccessibilityEventPending = false;
+        // Nothing is shown anymore
+        applyPendingSpinState();
+    }
 
-        arrowPath.rewind();
-        arrowPath.setFillType(Path.FillType.EVEN_ODD);
-        arrowPath.moveTo(aX, aY);
-        arrowPath.lineTo(aX, aY);
-        arrowPath.lineTo(bX, bY);
-        arrowPath.lineTo(x + cX, y + cY);
-        arrowPath.close();
+    //----------------------------------
+    //Accessibility
+    //----------------------------------
 
-        arrowPaint.setAntiAlias(true);
-        arrowPaint.setColor(barColor);
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(event);
 
-        canvas.drawPath(arrowPath, arrowPaint);
+        event.setClassName(ProgressBar.class.getName());
+        if (!animator.isSpinning) {
+            event.setItemCount(100);
+            event.setCurrentItemIndex(Math.round(getAccessibilityProgress() * 100));
+        }
     }
 
     @Override
-    protected void onVisibilityChanged(View changedView, int visibility) {
-        super.onVisibilityChanged(changedView, visibility);
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
 
-        if (visibility == VISIBLE) {
-            lastTimeAnimated = SystemClock.uptimeMillis();
+        info.setClassName(ProgressBar.class.getName());
+        if (!animator.isSpinning && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            setRangeInfo(info);
         }
     }
 
-    private void updateBarLength(long deltaTimeInMilliSeconds) {
-        if (pausedTimeWithoutGrowing >= pauseGrowingTime) {
-            timeStartGrowing += deltaTimeInMilliSeconds;
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private void setRangeInfo(AccessibilityNodeInfo info) {
+        info.setRangeInfo(AccessibilityNodeInfo.RangeInfo.obtain(
+                AccessibilityNodeInfo.RangeInfo.RANGE_TYPE_FLOAT, 0, 1, getAccessibilityProgress()));
+    }
 
-            if (timeStartGrowing > barSpinCycleTime) {
-                // We completed a size change cycle
-                // (growing or shrinking)
-                timeStartGrowing -= barSpinCycleTime;
-                //if(barGrowingFromFront) {
-                pausedTimeWithoutGrowing = 0;
-                //}
-                barGrowingFromFront = !barGrowingFromFront;
-            }
+    /**
+     * @return the determinate progress reported to accessibility services, between 0 and 1
+     */
+    private float getAccessibilityProgress() {
+        return animator.mTargetProgress / 360.0f;
+    }
 
-            float distance =
-                    (float) Math.cos((timeStartGrowing / barSpinCycleTime + 1) * Math.PI) / 2 + 0.5f;
-            float destLength = (barMaxLength - barLength);
+    /**
+     * Send the new progress to the accessibility services, at most once per interval
+     * and only if it moved by the minimum step. Indeterminate mode never sends events.
+     */
+    private void scheduleProgressAccessibilityEvent() {
+        if (animator.isSpinning || isAccessibilityEventPending) {
+            // A pending event reads the latest progress when it is sent
+            return;
+        }
+        if (accessibilityManager == null) {
+            accessibilityManager =
+                    (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+        }
+        if (accessibilityManager == null || !accessibilityManager.isEnabled()) {
+            return;
+        }
 
-            if (barGrowingFromFront) {
-                barExtraLength = distance * destLength;
-            } else {
-                float newLength = destLength * (1 - distance);
-                mProgress += (barExtraLength - newLength);
-                barExtraLength = newLength;
-            }
+        float progress = getAccessibilityProgress();
+        boolean isEnd = progress == 0 || progress == 1;
+        if (progress == lastAccessibilityProgress
+                || (!isEnd && Math.abs(progress - lastAccessibilityProgress) < accessibilityEventMinStep)) {
+            return;
+        }
+
+        long wait = lastAccessibilityEventTime + accessibilityEventInterval - WheelClock.now();
+        if (wait <= 0) {
+            sendProgressAccessibilityEvent();
         } else {
-            pausedTimeWithoutGrowing += deltaTimeInMilliSeconds;
+            isAccessibilityEventPending = true;
+            postDelayed(accessibilityEventSender, wait);
         }
     }
 
+    private void sendProgressAccessibilityEvent() {
+        isAccessibilityEventPending = false;
+        if (animator.isSpinning) {
+            return;
+        }
+
+        lastAccessibilityEventTime = WheelClock.now();
+        lastAccessibilityProgress = getAccessibilityProgress();
+        sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SELECTED);
+    }
+
+    /**
+     * Sets how often the progress is sent to the accessibility services
+     *
+     * @param interval the minimum time between two progress events, in milliseconds
+     * @param minStep  the minimum progress change to send an event, between 0 and 1
+     */
+    public void setAccessibilityEventThrottle(long interval, float minStep) {
+        this.accessibilityEventInterval = interval;
+        this.accessibilityEventMinStep = minStep;
+    }
+
     /**
      * Check if the wheel is currently spinning
      */
 
     public boolean isSpinning() {
-        return isSpinning;
+        return animator.isSpinning;
     }
 
     /**
      * Reset the count (in increment mode)
      */
     public void resetCount() {
-        mProgress = 0.0f;
-        mTargetProgress = 0.0f;
+        animator.resetCount(WheelClock.now());
+        resetSpinBudget();
         invalidate();
     }
 
     /**
-     * Turn off spin mode
+     * Turn off spin mode, after the minimum show time of {@link #setSpinDebounce(long, long)}
      */
     public void stopSpinning() {
-        if (isSpinning) {
-            isFinishingArrow = false;
-            isPostFinishingArrow = true;
+        if (isSpinPending) {
+            // Never shown, neither arrow is played
+            removeCallbacks(pendingSpinState);
+            isSpinPending = false;
+            skippedSpins++;
+            return;
         }
-        invalidate();
+        if (isStopPending) {
+            return;
+        }
+
+        long now = WheelClock.now();
+        if (animator.isSpinning && spinShownSince >= 0 && now - spinShownSince < spinMinShowTime) {
+            isStopPending = true;
+            schedulePendingSpinState(spinShownSince + spinMinShowTime);
+            return;
+        }
+        finishSpinning();
     }
 
+    private void finishSpinning() {
+        spinShownSince = -1;
+        animator.stopSpinning(WheelClock.now());
+        resetSpinBudget();
+        invalidate();
+    }
 
     /**
-     * Puts the view on spin mode
+     * Puts the view on spin mode, after the show delay of {@link #setSpinDebounce(long, long)}
      */
     public void spin() {
-        lastTimeAnimated = SystemClock.uptimeMillis();
-        if (!isSpinning) {
-            isSpinning = true;
-            isStartingArrow = true;
+        if (isStopPending) {
+            // Still shown, it keeps spinning without the finishing and starting arrows
+            removeCallbacks(pendingSpinState);
+            isStopPending = false;
+            coalescedStops++;
+            return;
+        }
+        if (isSpinPending) {
+            return;
+        }
+
+        // A pulled arrow is already shown, it spins at once
+        if (spinShowDelay > 0 && !animator.isSpinning && !animator.isPulling) {
+            isSpinPending = true;
+            schedulePendingSpinState(WheelClock.now() + spinShowDelay);
+            return;
+        }
+        startSpinning();
+    }
+
+    private void startSpinning() {
+        long now = WheelClock.now();
+        if (!animator.isSpinning) {
+            spinShownSince = now;
         }
+        animator.spin(now);
+        resetSpinBudget();
+        invalidate();
+    }
+
+    /**
+     * Post the pending spin state for the given time, a wheel following a test clock
+     * doesn't post it, the clock applies it when it gets there
+     */
+    private void schedulePendingSpinState(long at) {
+        pendingSpinStateAt = at;
+        removeCallbacks(pendingSpinState);
+        if (clock == null) {
+            postDelayed(pendingSpinState, Math.max(0, at - WheelClock.now()));
+        }
+    }
+
+    /**
+     * Apply the pending spin or stop if its time has come
+     *
+     * @param now the time of WheelClock.now()
+     */
+    void runDueSpinState(long now) {
+        if (!isSpinPending && !isStopPending) {
+            return;
+        }
+        if (now < pendingSpinStateAt) {
+            schedulePendingSpinState(pendingSpinStateAt);
+            return;
+        }
+
+        if (isSpinPending) {
+            isSpinPending = false;
+            startSpinning();
+        } else {
+            isStopPending = false;
+            finishSpinning();
+        }
+    }
+
+    /**
+     * A progress replaces the spin state waiting for its delay
+     */
+    private void cancelPendingSpinState() {
+        if (isSpinPending) {
+            removeCallbacks(pendingSpinState);
+            isSpinPending = false;
+            skippedSpins++;
+        }
+        if (isStopPending) {
+            removeCallbacks(pendingSpinState);
+            isStopPending = false;
+        }
+        spinShownSince = -1;
+    }
+
+    /**
+     * Applies the spin state waiting for its delay at once, when the wheel can't be seen
+     */
+    private void applyPendingSpinState() {
+        if (isSpinPending) {
+            removeCallbacks(pendingSpinState);
+            isSpinPending = false;
+            startSpinning();
+        }
+        if (isStopPending) {
+            removeCallbacks(pendingSpinState);
+            isStopPending = false;
+            finishSpinning();
+        }
+    }
+
+    /**
+     * Debounces spin() and stopSpinning() for short tasks, like a ContentLoadingProgressBar.
+     * spin() only shows the spinner after the show delay, a stopSpinning() before it skips
+     * the spin and none of its animations are played. Once shown, the spinner stays for at least
+     * the minimum show time, a spin() while the stop waits for it keeps the wheel spinning.
+     * A progress set in between replaces the waiting spin state.
+     *
+     * @param showDelay   the time before a spin() is shown, in milliseconds, 0 to show it at once
+     * @param minShowTime the minimum time a spinner is shown, in milliseconds, 0 to stop it at once
+     */
+    public void setSpinDebounce(long showDelay, long minShowTime) {
+        this.spinShowDelay = showDelay;
+        this.spinMinShowTime = minShowTime;
+    }
+
+    /**
+     * @return the number of spin() calls stopped before their show delay,
+     * each one saved the starting and the finishing arrows
+     */
+    public long getSkippedSpins() {
+        return skippedSpins;
+    }
+
+    /**
+     * @return the number of stopSpinning() calls followed by a spin() within the minimum show time,
+     * each one saved the finishing and the starting arrows
+     */
+    public long getCoalescedStops() {
+        return coalescedStops;
+    }
+
+    /**
+     * Shows the refresh arrow for a drag gesture, leaving the spin mode.
+     * The bar grows and the arrow turns with the fraction, and spin() starts from the arrow as it is drawn
+     *
+     * @param fraction the dragged distance over the distance needed to refresh, between 0 and 1
+     */
+    public void setPullProgress(float fraction) {
+        cancelPendingSpinState();
+        animator.pull(fraction, WheelClock.now());
+        resetSpinBudget();
         invalidate();
     }
 
@@ -530,7 +1019,7 @@ public class ProgressWheel extends View {
 
     private void runCallback() {
         if (callback != null) {
-            float normalizedProgress = (float) Math.round(mProgress * 100 / 360.0f) / 100;
+            float normalizedProgress = (float) Math.round(animator.mProgress * 100 / 360.0f) / 100;
             callback.onProgressUpdate(normalizedProgress);
         }
     }
@@ -542,25 +1031,17 @@ public class ProgressWheel extends View {
      * @param progress the progress between 0 and 1
      */
     public void setInstantProgress(float progress) {
-        if (isSpinning) {
-            mProgress = 0.0f;
-            isSpinning = false;
-        }
-
-        if (progress > 1.0f) {
-            progress -= 1.0f;
-        } else if (progress < 0) {
-            progress = 0;
-        }
-
-        if (progress == mTargetProgress) {
-            return;
+        cancelPendingSpinState();
+        resetSpinBudget();
+        boolean wasSpinning = animator.isSpinning;
+        if (animator.setInstantProgress(progress, WheelClock.now())) {
+            if (wasSpinning || isVisibleChange()) {
+                invalidate();
+            } else {
+                suppressedRedraws++;
+            }
+            scheduleProgressAccessibilityEvent();
         }
-
-        mTargetProgress = Math.min(progress * 360.0f, 360.0f);
-        mProgress = mTargetProgress;
-        lastTimeAnimated = SystemClock.uptimeMillis();
-        invalidate();
     }
 
     // Great way to save a view's state http://stackoverflow.com/a/7089687/1991053
@@ -571,17 +1052,17 @@ public class ProgressWheel extends View {
         WheelSavedState ss = new WheelSavedState(superState);
 
         // We save everything that can be changed at runtime
-        ss.mProgress = this.mProgress;
-        ss.mTargetProgress = this.mTargetProgress;
-        ss.isSpinning = this.isSpinning;
-        ss.spinSpeed = this.spinSpeed;
-        ss.barWidth = this.barWidth;
-        ss.barColor = this.barColor;
-        ss.rimWidth = this.rimWidth;
-        ss.rimColor = this.rimColor;
-        ss.circleRadius = this.circleRadius;
-        ss.linearProgress = this.linearProgress;
-        ss.fillRadius = this.fillRadius;
+        ss.mProgress = animator.mProgress;
+        ss.mTargetProgress = animator.mTargetProgress;
+        ss.isSpinning = animator.isSpinning;
+        ss.spinSpeed = animator.spinSpeed;
+        ss.barWidth = style.barWidth;
+        ss.barColor = style.barColor;
+        ss.rimWidth = style.rimWidth;
+        ss.rimColor = style.rimColor;
+        ss.circleRadius = style.circleRadius;
+        ss.linearProgress = style.linearProgress;
+        ss.fillRadius = style.fillRadius;
 
         return ss;
     }
@@ -596,19 +1077,32 @@ public class ProgressWheel extends View {
         WheelSavedState ss = (WheelSavedState) state;
         super.onRestoreInstanceState(ss.getSuperState());
 
-        this.mProgress = ss.mProgress;
-        this.mTargetProgress = ss.mTargetProgress;
-        this.isSpinning = ss.isSpinning;
-        this.spinSpeed = ss.spinSpeed;
-        this.barWidth = ss.barWidth;
-        this.barColor = ss.barColor;
-        this.rimWidth = ss.rimWidth;
-        this.rimColor = ss.rimColor;
-        this.circleRadius = ss.circleRadius;
-        this.linearProgress = ss.linearProgress;
-        this.fillRadius = ss.fillRadius;
+        animator.mProgress = ss.mProgress;
+        animator.mTargetProgress = ss.mTargetProgress;
+        animator.isSpinning = ss.isSpinning;
+        animator.spinSpeed = ss.spinSpeed;
+        if (ss.barWidth != style.barWidth || ss.barColor != style.barColor
+                || ss.rimWidth != style.rimWidth || ss.rimColor != style.rimColor
+                || ss.circleRadius != style.circleRadius || ss.linearProgress != style.linearProgress
+                || ss.fillRadius != style.fillRadius) {
+            // Only leave the shared style if something was changed at runtime
+            edit().barWidth(ss.barWidth)
+                    .rimWidth(ss.rimWidth)
+                    .rimColor(ss.rimColor)
+                    .circleRadius(ss.circleRadius)
+                    .linearProgress(ss.linearProgress)
+                    .fillRadius(ss.fillRadius);
+            if (ss.barColor != style.barColor) {
+                edit().barColor(ss.barColor);
+            }
+            edit().apply();
+        }
 
-        this.lastTimeAnimated = SystemClock.uptimeMillis();
+        animator.lastTimeAnimated = WheelClock.now();
+        if (animator.trace != null) {
+            // The restored state is not an event of the trace, start it again from here
+            animator.trace.begin(animator);
+        }
     }
 
     /**
@@ -616,7 +1110,7 @@ public class ProgressWheel extends View {
      * if the wheel is indeterminate, then the result is -1
      */
     public float getProgress() {
-        return isSpinning ? -1 : mProgress / 360.0f;
+        return animator.isSpinning ? -1 : animator.mProgress / 360.0f;
     }
 
     //----------------------------------
@@ -630,52 +1124,86 @@ public class ProgressWheel extends View {
      * @param progress the progress between 0 and 1
      */
     public void setProgress(float progress) {
-        if (isSpinning) {
-            mProgress = 0.0f;
-            isSpinning = false;
+        cancelPendingSpinState();
+        resetSpinBudget();
+        boolean wasSpinning = animator.isSpinning;
+        if (animator.isSpinning) {
+            animator.cancelSpin(WheelClock.now());
 
             runCallback();
         }
 
-        if (progress > 1.0f) {
-            progress -= 1.0f;
-        } else if (progress < 0) {
-            progress = 0;
+        if (animator.setProgress(progress, WheelClock.now())) {
+            if (wasSpinning || isVisibleChange()) {
+                invalidate();
+            } else {
+                suppressedRedraws++;
+            }
+            scheduleProgressAccessibilityEvent();
         }
+    }
 
-        if (progress == mTargetProgress) {
-            return;
+    /**
+     * @return true if a frame drawn now would differ from the last one drawn
+     */
+    private boolean isVisibleChange() {
+        if (redrawThreshold <= 0 || circleBounds.width() <= 0) {
+            // Every update is drawn, or not laid out yet and the first draw shows it anyway
+            return true;
         }
+        // The target itself is not drawn, only where the bar would be now
+        return snapToRedrawThreshold(animator.progressAt(WheelClock.now()) - 90) != drawnFrom;
+    }
 
-        // If we are currently in the right position
-        // we set again the last time animated so the
-        // animation starts smooth from here
-        if (mProgress == mTargetProgress) {
-            lastTimeAnimated = SystemClock.uptimeMillis();
+    /**
+     * @return the angle rounded to the closest step of the redraw threshold along the circle
+     */
+    private float snapToRedrawThreshold(float angle) {
+        float radius = circleBounds.width() / 2;
+        if (redrawThreshold <= 0 || radius <= 0) {
+            return angle;
         }
+        double step = Math.toDegrees(redrawThreshold / radius);
+        return (float) (Math.round(angle / step) * step);
+    }
 
-        mTargetProgress = Math.min(progress * 360.0f, 360.0f);
-
+    /**
+     * Sets the steps, measured along the circle, on which a wheel standing still draws its bar.
+     * A progress update redraws the wheel only if it moves the bar to another step,
+     * smaller updates add up until they do.
+     *
+     * @param redrawThreshold the distance in pixels, 0 to redraw on every update
+     */
+    public void setRedrawThreshold(float redrawThreshold) {
+        this.redrawThreshold = redrawThreshold;
         invalidate();
     }
 
+    public float getRedrawThreshold() {
+        return redrawThreshold;
+    }
+
+    /**
+     * @return the number of progress updates that didn't redraw the wheel
+     */
+    public long getSuppressedRedraws() {
+        return suppressedRedraws;
+    }
+
     /**
      * Sets the determinate progress mode
      *
      * @param isLinear if the progress should increase linearly
      */
     public void setLinearProgress(boolean isLinear) {
-        linearProgress = isLinear;
-        if (!isSpinning) {
-            invalidate();
-        }
+        edit().linearProgress(isLinear).apply();
     }
 
     /**
      * @return the radius of the wheel in pixels
      */
     public int getCircleRadius() {
-        return circleRadius;
+        return style.circleRadius;
     }
 
     /**
@@ -684,17 +1212,14 @@ public class ProgressWheel extends View {
      * @param circleRadius the expected radius, in pixels
      */
     public void setCircleRadius(int circleRadius) {
-        this.circleRadius = circleRadius;
-        if (!isSpinning) {
-            invalidate();
-        }
+        edit().circleRadius(circleRadius).apply();
     }
 
     /**
      * @return the width of the spinning bar
      */
     public int getBarWidth() {
-        return barWidth;
+        return style.barWidth;
     }
 
     /**
@@ -703,37 +1228,65 @@ public class ProgressWheel extends View {
      * @param barWidth the spinning bar width in pixels
      */
     public void setBarWidth(int barWidth) {
-        this.barWidth = barWidth;
-        if (!isSpinning) {
-            invalidate();
-        }
+        edit().barWidth(barWidth).apply();
     }
 
     /**
      * @return the color of the spinning bar
      */
     public int getBarColor() {
-        return barColor;
+        return style.barColor;
     }
 
     /**
-     * Sets the color of the spinning bar
+     * Sets the color of the spinning bar, replacing the color sequence if there is one
      *
      * @param barColor The spinning bar color
      */
     public void setBarColor(int barColor) {
-        this.barColor = barColor;
-        setupPaints();
-        if (!isSpinning) {
-            invalidate();
-        }
+        edit().barColor(barColor).apply();
+    }
+
+    /**
+     * @return the colors of the bar sequence, or null if the bar has a single color
+     */
+    public int[] getBarColors() {
+        return style.getBarColors();
+    }
+
+    /**
+     * Sets a sequence of colors for the spinning bar, the bar moves to the next color
+     * each time the wheel completes a turn. The color of each frame is precomputed,
+     * so this is cheaper than calling {@link #setBarColor(int)} from the {@link ProgressCallback}.
+     *
+     * @param barColors     the colors of the sequence, or null to go back to the single bar color
+     * @param crossFadeTime the duration of the transition between two colors, in milliseconds
+     */
+    public void setBarColors(int[] barColors, long crossFadeTime) {
+        edit().barColors(barColors, crossFadeTime).apply();
+    }
+
+    /**
+     * @return true if the bar is drawn with a gradient
+     */
+    public boolean isBarGradient() {
+        return style.barGradient;
+    }
+
+    /**
+     * Draws the bar with a gradient, fading from its head to its tail
+     *
+     * @param barGradient true to draw the gradient, false for a solid bar
+     */
+    public void setBarGradient(boolean barGradient) {
+        edit().barGradient(barGradient).apply();
     }
 
     /**
      * @return the color of the wheel's contour
      */
     public int getRimColor() {
-        return rimColor;
+        return style.rimColor;
     }
 
     /**
@@ -742,11 +1295,7 @@ public class ProgressWheel extends View {
      * @param rimColor the color for the wheel
      */
     public void setRimColor(int rimColor) {
-        this.rimColor = rimColor;
-        setupPaints();
-        if (!isSpinning) {
-            invalidate();
-        }
+        edit().rimColor(rimColor).apply();
     }
 
     /**
@@ -755,7 +1304,7 @@ public class ProgressWheel extends View {
      * the smoothness when setting a progress
      */
     public float getSpinSpeed() {
-        return spinSpeed / 360.0f;
+        return animator.spinSpeed / 360.0f;
     }
 
     /**
@@ -766,14 +1315,14 @@ public class ProgressWheel extends View {
      * @param spinSpeed the desired base speed in full turns per second
      */
     public void setSpinSpeed(float spinSpeed) {
-        this.spinSpeed = spinSpeed * 360.0f;
+        animator.setSpinSpeed(spinSpeed * 360.0f, WheelClock.now());
     }
 
     /**
      * @return the width of the wheel's contour in pixels
      */
     public int getRimWidth() {
-        return rimWidth;
+        return style.rimWidth;
     }
 
     /**
@@ -782,12 +1331,216 @@ public class ProgressWheel extends View {
      * @param rimWidth the width in pixels
      */
     public void setRimWidth(int rimWidth) {
-        this.rimWidth = rimWidth;
-        if (!isSpinning) {
+        edit().rimWidth(rimWidth).apply();
+    }
+
+    /**
+     * @return the style of the wheel, it can be shared with other wheels
+     */
+    public WheelStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * Sets the look of the wheel. A style is immutable, any number of wheels can share it,
+     * along with the paints derived from it.
+     * To restyle many wheels at once, build the style once and set it on each of them.
+     *
+     * @param style the new style of the wheel
+     */
+    public void setStyle(WheelStyle style) {
+        WheelStyle old = this.style;
+        if (style == old) {
+            return;
+        }
+        this.style = style;
+
+        int changes = Editor.CHANGED_PAINTS;
+        if (style.circleRadius != old.circleRadius) {
+            changes |= Editor.CHANGED_SIZE | Editor.CHANGED_BOUNDS;
+        }
+        if (style.barWidth != old.barWidth || style.fillRadius != old.fillRadius) {
+            // The bounds are inset by the bar width
+            changes |= Editor.CHANGED_BOUNDS;
+        }
+        if (style.colorRamp != old.colorRamp) {
+            colorIndex = 0;
+            colorFadeStart = -1;
+        }
+        if (style.spinSpeed != old.spinSpeed) {
+            animator.setSpinSpeed(style.spinSpeed, WheelClock.now());
+        }
+        if (style.barSpinCycleTime != old.barSpinCycleTime) {
+            animator.setBarSpinCycleTime(style.barSpinCycleTime, WheelClock.now());
+        }
+
+        applyChanges(changes);
+    }
+
+    /**
+     * Starts a batch of changes to the look of the wheel, the paints, the bounds
+     * and the layout are updated at most once, when {@link Editor#apply()} is called:
+     * <pre>
+     * wheel.edit().barWidth(8).rimColor(Color.LTGRAY).apply();
+     * </pre>
+     * The editor is reused, each batch builds at most one new style for the wheel,
+     * none if the same style was built before.
+     */
+    public Editor edit() {
+        if (editor == null) {
+            editor = new Editor();
+        }
+        return editor;
+    }
+
+    private void applyChanges(int changes) {
+        if ((changes & Editor.CHANGED_SIZE) != 0) {
+            requestLayout();
+        }
+        // The paints and the bounds are set up on the next draw,
+        // so several batches in the same frame only do it once
+        pendingSetup |= changes & (Editor.CHANGED_PAINTS | Editor.CHANGED_BOUNDS);
+        if (changes != 0 && !animator.isSpinning) {
             invalidate();
         }
     }
 
+    private void runPendingSetup() {
+        if ((pendingSetup & Editor.CHANGED_BOUNDS) != 0) {
+            setupBounds(getWidth(), getHeight());
+        }
+        // The gradient of the bar depends on the bounds too
+        setupPaints();
+        pendingSetup = 0;
+    }
+
+    /**
+     * Limits the resources used by a wheel spinning for a long time.
+     * After spinning continuously for the first delay the wheel draws at a lower frame rate,
+     * after the second one it only draws a pulsing rim, without the bar and the arrow.
+     * Any visible state change (spin, stop, progress, visibility) restores the full frame rate.
+     *
+     * @param reducedFrameRateAfter the spinning time before lowering the frame rate, in milliseconds,
+     *                              0 to disable
+     * @param simplifiedAfter       the spinning time before simplifying the rendering, in milliseconds,
+     *                              0 to disable
+     */
+    public void setSpinBudget(long reducedFrameRateAfter, long simplifiedAfter) {
+        this.reducedFrameRateAfter = reducedFrameRateAfter;
+        this.simplifiedAfter = simplifiedAfter;
+        resetSpinBudget();
+        invalidate();
+    }
+
+    /**
+     * @return the current spin budget level, one of the SPIN_BUDGET_* values
+     */
+    public int getSpinBudgetLevel() {
+        return spinBudgetLevel;
+    }
+
+    public void setSpinBudgetCallback(SpinBudgetCallback spinBudgetCallback) {
+        this.spinBudgetCallback = spinBudgetCallback;
+    }
+
+    /**
+     * A batch of changes to a wheel, see {@link #edit()}
+     */
+    public class Editor {
+        static final int CHANGED_PAINTS = 1;
+        static final int CHANGED_BOUNDS = 1 << 1;
+        static final int CHANGED_SIZE = 1 << 2;
+
+        // Reused for each batch, started again from the style of the wheel
+        private WheelStyle.Builder builder;
+        private boolean isEditing = false;
+
+        private Editor() {
+        }
+
+        private WheelStyle.Builder builder() {
+            if (!isEditing) {
+                builder = builder == null ? style.buildUpon() : builder.set(style);
+                isEditing = true;
+            }
+            return builder;
+        }
+
+        public Editor barColor(int barColor) {
+            builder().barColor(barColor);
+            return this;
+        }
+
+        public Editor barColors(int[] barColors, long crossFadeTime) {
+            builder().barColors(barColors, crossFadeTime);
+            return this;
+        }
+
+        public Editor barGradient(boolean barGradient) {
+            builder().barGradient(barGradient);
+            return this;
+        }
+
+        public Editor rimColor(int rimColor) {
+            builder().rimColor(rimColor);
+            return this;
+        }
+
+        public Editor barWidth(int barWidth) {
+            builder().barWidth(barWidth);
+            return this;
+        }
+
+        public Editor rimWidth(int rimWidth) {
+            builder().rimWidth(rimWidth);
+            return this;
+        }
+
+        public Editor circleRadius(int circleRadius) {
+            builder().circleRadius(circleRadius);
+            return this;
+        }
+
+        public Editor fillRadius(boolean fillRadius) {
+            builder().fillRadius(fillRadius);
+            return this;
+        }
+
+        public Editor linearProgress(boolean linearProgress) {
+            builder().linearProgress(linearProgress);
+            return this;
+        }
+
+        /**
+         * Only changes the speed of this wheel, the style keeps its initial speed
+         */
+        public Editor spinSpeed(float spinSpeed) {
+            animator.setSpinSpeed(spinSpeed * 360.0f, WheelClock.now());
+            return this;
+        }
+
+        /**
+         * Updates the wheel for all the changes of the batch
+         */
+        public void apply() {
+            if (!isEditing) {
+                return;
+            }
+            isEditing = false;
+            setStyle(builder.build());
+        }
+    }
+
+    public interface SpinBudgetCallback {
+        /**
+         * Method to call each time the wheel changes its spin budget level
+         *
+         * @param level        one of the SPIN_BUDGET_* values
+         * @param spinningTime how long the wheel has been spinning continuously, in milliseconds
+         */
+        void onSpinBudgetLevelChanged(int level, long spinningTime);
+    }
+
     public interface ProgressCallback {
         /**
          * Method to call when the progress reaches a value
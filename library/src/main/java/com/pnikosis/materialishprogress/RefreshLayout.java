@@ -0,0 +1,403 @@
+package com.pnikosis.materialishprogress;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.Scroller;
+
+/**
+ * A pull to refresh container for a single scrollable child. Dragging the child down
+ * from its top pulls a {@link ProgressWheel} showing the refresh arrow, the drag distance
+ * grows the bar and turns the arrow, and on release the arrow turns into the spinner.
+ * <p/>
+ * The wheel is moved and redrawn from the touch events, in the frame they are delivered,
+ * so the arrow follows the finger as close as any other view. Invalidations are coalesced
+ * by the framework, the wheel is drawn at most once per frame.
+ */
+public class RefreshLayout extends ViewGroup {
+    private static final int INVALID_POINTER = -1;
+    // The wheel moves half the distance of the finger
+    private static final float dragRate = .5f;
+    private static final int settleDuration = 200;
+
+    private final ProgressWheel wheel;
+    private final Scroller scroller;
+    private final int touchSlop;
+    private final int minimumFlingVelocity;
+    private View target;
+    private OnRefreshListener listener;
+
+    // The drag of the wheel needed to refresh, in px
+    private int refreshDistance;
+    // The distance of the wheel from its hidden position, in px
+    private int wheelOffset = 0;
+    // Only the drags pull the arrow, the wheel keeps its state while it settles
+    private boolean isSettlingPull = false;
+    private boolean refreshing = false;
+
+    private boolean isBeingDragged = false;
+    private int activePointerId = INVALID_POINTER;
+    private float initialDownY;
+    private float initialDragY;
+    private float lastSampleY;
+    private long lastSampleTime = -1;
+    // Downward velocity of the drag, in px per second
+    private float velocityY = 0;
+
+    public RefreshLayout(Context context) {
+        this(context, null);
+    }
+
+    public RefreshLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        touchSlop = configuration.getScaledTouchSlop();
+        minimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        refreshDistance = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 64,
+                getResources().getDisplayMetrics());
+        scroller = new Scroller(context);
+
+        wheel = new ProgressWheel(context);
+        // The default sizes of a wheel created in code are in pixels, scale them to the density
+        wheel.setStyle(new WheelStyle.Builder(context).build());
+        wheel.setPullProgress(0);
+        addView(wheel, new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+        // The wheel is drawn over the content
+        setChildrenDrawingOrderEnabled(true);
+    }
+
+    /**
+     * @return the wheel of the layout, to change its style
+     */
+    public ProgressWheel getProgressWheel() {
+        return wheel;
+    }
+
+    public void setOnRefreshListener(OnRefreshListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param refreshDistance the distance the wheel has to be pulled to refresh, in pixels
+     */
+    public void setRefreshDistance(int refreshDistance) {
+        this.refreshDistance = refreshDistance;
+    }
+
+    public int getRefreshDistance() {
+        return refreshDistance;
+    }
+
+    public boolean isRefreshing() {
+        return refreshing;
+    }
+
+    /**
+     * Show or hide the spinner, the listener is not called
+     */
+    public void setRefreshing(boolean refreshing) {
+        if (this.refreshing == refreshing) {
+            return;
+        }
+
+        if (refreshing) {
+            if (wheelOffset == 0) {
+                wheel.setPullProgress(1);
+            }
+            startRefresh(false);
+        } else {
+            this.refreshing = false;
+            wheel.stopSpinning();
+            settleTo(0, false);
+        }
+    }
+
+    //----------------------------------
+    //Layout
+    //----------------------------------
+
+    private void ensureTarget() {
+        if (target != null) {
+            return;
+        }
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child != wheel) {
+                target = child;
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+
+        ensureTarget();
+        if (target != null) {
+            target.measure(
+                    MeasureSpec.makeMeasureSpec(getMeasuredWidth() - getPaddingLeft() - getPaddingRight(),
+                            MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(getMeasuredHeight() - getPaddingTop() - getPaddingBottom(),
+                            MeasureSpec.EXACTLY));
+        }
+        wheel.measure(MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int width = getMeasuredWidth();
+
+        ensureTarget();
+        if (target != null) {
+            target.layout(getPaddingLeft(), getPaddingTop(),
+                    getPaddingLeft() + target.getMeasuredWidth(), getPaddingTop() + target.getMeasuredHeight());
+        }
+
+        int wheelWidth = wheel.getMeasuredWidth();
+        int wheelHeight = wheel.getMeasuredHeight();
+        int wheelTop = getPaddingTop() - wheelHeight + wheelOffset;
+        wheel.layout(width / 2 - wheelWidth / 2, wheelTop, width / 2 + wheelWidth / 2, wheelTop + wheelHeight);
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        int wheelIndex = indexOfChild(wheel);
+        if (i == childCount - 1) {
+            return wheelIndex;
+        }
+        return i >= wheelIndex ? i + 1 : i;
+    }
+
+    //----------------------------------
+    //Touch
+    //----------------------------------
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private boolean canTargetScrollUp() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return target.canScrollVertically(-1);
+        }
+        if (target instanceof AbsListView) {
+            AbsListView list = (AbsListView) target;
+            return list.getChildCount() > 0 && (list.getFirstVisiblePosition() > 0
+                    || list.getChildAt(0).getTop() < list.getPaddingTop());
+        }
+        return target.getScrollY() > 0;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        ensureTarget();
+        if (!isEnabled() || refreshing || target == null || canTargetScrollUp()) {
+            return false;
+        }
+
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                activePointerId = ev.getPointerId(0);
+                isBeingDragged = false;
+                initialDownY = ev.getY();
+                break;
+
+            case MotionEvent.ACTION_MOVE: {
+                int index = ev.findPointerIndex(activePointerId);
+                if (index < 0) {
+                    return false;
+                }
+                startDragIfNeeded(ev.getY(index), ev.getEventTime());
+                break;
+            }
+
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                isBeingDragged = false;
+                activePointerId = INVALID_POINTER;
+                break;
+        }
+
+        return isBeingDragged;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (!isEnabled() || refreshing || target == null || (!isBeingDragged && canTargetScrollUp())) {
+            return false;
+        }
+
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                activePointerId = ev.getPointerId(0);
+                isBeingDragged = false;
+                initialDownY = ev.getY();
+                break;
+
+            case MotionEvent.ACTION_MOVE: {
+                int index = ev.findPointerIndex(activePointerId);
+                if (index < 0) {
+                    return false;
+                }
+                if (!isBeingDragged) {
+                    startDragIfNeeded(ev.getY(index), ev.getEventTime());
+                }
+                if (isBeingDragged) {
+                    onDrag(ev, index);
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                int index = ev.getActionIndex();
+                activePointerId = ev.getPointerId(index);
+                // The new pointer moves the wheel from where it is
+                initialDragY = ev.getY(index) - wheelOffset / dragRate;
+                lastSampleTime = -1;
+                break;
+            }
+
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if (isBeingDragged) {
+                    isBeingDragged = false;
+                    onRelease();
+                }
+                activePointerId = INVALID_POINTER;
+                return false;
+
+            case MotionEvent.ACTION_CANCEL:
+                if (isBeingDragged) {
+                    isBeingDragged = false;
+                    settleTo(0, true);
+                }
+                activePointerId = INVALID_POINTER;
+                return false;
+        }
+
+        return true;
+    }
+
+    private void startDragIfNeeded(float y, long time) {
+        if (isBeingDragged || y - initialDownY <= touchSlop) {
+            return;
+        }
+        isBeingDragged = true;
+        // Catch the wheel if it was going back
+        scroller.forceFinished(true);
+        initialDragY = initialDownY + touchSlop - wheelOffset / dragRate;
+        velocityY = 0;
+        lastSampleY = y;
+        lastSampleTime = time;
+    }
+
+    /**
+     * Move the wheel to the last sample of the event, the samples batched since
+     * the previous event are only used for the release velocity
+     */
+    private void onDrag(MotionEvent ev, int index) {
+        int historySize = ev.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            trackVelocity(ev.getHistoricalY(index, h), ev.getHistoricalEventTime(h));
+        }
+        float y = ev.getY(index);
+        trackVelocity(y, ev.getEventTime());
+
+        int offset = (int) ((y - initialDragY) * dragRate);
+        setWheelOffset(Math.max(0, Math.min(offset, refreshDistance)), true);
+    }
+
+    private void trackVelocity(float y, long time) {
+        if (lastSampleTime >= 0 && time > lastSampleTime) {
+            float velocity = (y - lastSampleY) * 1000 / (time - lastSampleTime);
+            // Smoothed over the last samples
+            velocityY = (velocityY + velocity) / 2;
+        }
+        lastSampleY = y;
+        lastSampleTime = time;
+    }
+
+    private void onSecondaryPointerUp(MotionEvent ev) {
+        int index = ev.getActionIndex();
+        if (ev.getPointerId(index) == activePointerId) {
+            // The active pointer went up, another one takes the drag over
+            int newIndex = index == 0 ? 1 : 0;
+            activePointerId = ev.getPointerId(newIndex);
+            initialDragY = ev.getY(newIndex) - wheelOffset / dragRate;
+            initialDownY = ev.getY(newIndex);
+            lastSampleTime = -1;
+        }
+    }
+
+    private void onRelease() {
+        boolean flung = velocityY > minimumFlingVelocity && wheelOffset * 2 >= refreshDistance;
+        if (wheelOffset >= refreshDistance || flung) {
+            startRefresh(true);
+        } else {
+            settleTo(0, true);
+        }
+    }
+
+    //----------------------------------
+    //Wheel position
+    //----------------------------------
+
+    private void startRefresh(boolean notify) {
+        refreshing = true;
+        // The wheel carries on from the arrow as it is drawn
+        wheel.spin();
+        settleTo(refreshDistance, false);
+
+        if (notify && listener != null) {
+            listener.onRefresh();
+        }
+    }
+
+    private void setWheelOffset(int offset, boolean pull) {
+        if (pull && refreshDistance > 0) {
+            wheel.setPullProgress((float) offset / refreshDistance);
+        }
+        if (offset != wheelOffset) {
+            wheel.offsetTopAndBottom(offset - wheelOffset);
+            wheelOffset = offset;
+            invalidate();
+        }
+    }
+
+    private void settleTo(int offset, boolean pull) {
+        scroller.forceFinished(true);
+        isSettlingPull = pull;
+        scroller.startScroll(0, wheelOffset, 0, offset - wheelOffset, settleDuration);
+        invalidate();
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            setWheelOffset(scroller.getCurrY(), isSettlingPull);
+            invalidate();
+        }
+    }
+
+    public interface OnRefreshListener {
+        /**
+         * Method to call when the user pulled the wheel far enough to refresh,
+         * call setRefreshing(false) once done
+         */
+        void onRefresh();
+    }
+}
@@ -0,0 +1,24 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Canvas;
+
+/**
+ * Where a {@link WheelRenderLoop} draws its frames: the surface of a
+ * {@link SurfaceProgressWheel}, or a {@link BitmapRenderTarget} without any window.
+ * The methods are called from the render thread.
+ */
+public interface RenderTarget {
+    /**
+     * @return the canvas for the next frame, or null if the target can't be drawn now
+     */
+    Canvas lockCanvas();
+
+    /**
+     * Show the frame drawn on the canvas returned by lockCanvas()
+     */
+    void unlockCanvasAndPost(Canvas canvas);
+
+    int getWidth();
+
+    int getHeight();
+}
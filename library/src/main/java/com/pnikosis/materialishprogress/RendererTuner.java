@@ -0,0 +1,228 @@
+package com.pnikosis.materialishprogress;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.view.View;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Picks the fastest {@link WheelRenderer} of a wheel on the device: each candidate draws
+ * a number of frames, the one with the lowest median draw time is pinned. The choice is
+ * persisted for the device and the configuration of the wheel, later wheels with the same
+ * configuration use it without measuring.
+ * <p/>
+ * The candidates take turns frame by frame and draw the live frames of the wheel, so the
+ * animation goes on while they are measured and they all sample the same phases of it.
+ * The persisted choices are read and written on a background thread, never while drawing.
+ * <p/>
+ * With hardware acceleration the time measured is the time to record the drawing
+ * on the UI thread, not the time the render thread or the GPU spends on it.
+ * A tuner and its candidates belong to a single wheel.
+ *
+ * @see ProgressWheel#setRendererTuner(RendererTuner)
+ */
+public class RendererTuner {
+    private static final String PREFERENCES = "materialish_progress_renderers";
+
+    private final Context context;
+    private final WheelRenderer[] candidates;
+    private final int framesPerCandidate;
+    // Draw times of the candidates, in nanoseconds
+    private final long[][] times;
+    // The candidate drawing the next frame, they take turns
+    private int candidate = 0;
+    // The turn of the candidates, the first one is a warm-up, not measured
+    private int frame = -1;
+    private String configuration;
+    private WheelRenderer selected;
+    private Listener listener;
+    // The persisted choices, null until they are read
+    private volatile Map<String, ?> persistedChoices;
+    private boolean isLoading = false;
+
+    /**
+     * Tunes between the arc and path renderers, over 30 frames each
+     */
+    public RendererTuner(Context context) {
+        this(context, 30, new ArcRenderer(), new PathRenderer());
+    }
+
+    /**
+     * @param framesPerCandidate the number of frames measured for each candidate
+     * @param candidates         the renderers to choose from, with different names
+     */
+    public RendererTuner(Context context, int framesPerCandidate, WheelRenderer... candidates) {
+        if (candidates.length == 0) {
+            throw new IllegalArgumentException("The tuner needs at least one candidate");
+        }
+        if (framesPerCandidate <= 0) {
+            throw new IllegalArgumentException("framesPerCandidate must be positive");
+        }
+        this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        this.candidates = candidates.clone();
+        this.framesPerCandidate = framesPerCandidate;
+        times = new long[candidates.length][framesPerCandidate];
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the pinned renderer, or null while measuring
+     */
+    public WheelRenderer getSelected() {
+        return selected;
+    }
+
+    /**
+     * Read the persisted choices on a background thread, the view is invalidated when they are read
+     */
+    void load(final View view) {
+        if (isLoading) {
+            return;
+        }
+        isLoading = true;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                persistedChoices = getPreferences().getAll();
+                view.postInvalidate();
+            }
+        }, "RendererTuner load").start();
+    }
+
+    /**
+     * @return true once the persisted choices are read, the tuning can start
+     */
+    boolean isLoaded() {
+        return persistedChoices != null;
+    }
+
+    boolean isStarted() {
+        return configuration != null;
+    }
+
+    /**
+     * Use the persisted choice for the configuration, or start measuring
+     *
+     * @param configuration identifies the device and the configuration of the wheel
+     */
+    void start(String configuration) {
+        this.configuration = configuration;
+
+        Object name = persistedChoices.get(configuration);
+        if (name != null) {
+            for (WheelRenderer renderer : candidates) {
+                if (renderer.getName().equals(name)) {
+                    select(renderer, true);
+                    return;
+                }
+            }
+        }
+
+        if (listener != null) {
+            listener.onTuningStarted(configuration);
+        }
+    }
+
+    /**
+     * @return the renderer that has to draw the next frame
+     */
+    WheelRenderer getCandidate() {
+        return selected != null ? selected : candidates[candidate];
+    }
+
+    /**
+     * @param nanos the time the candidate took to draw the frame
+     */
+    void onFrameDrawn(long nanos) {
+        if (selected != null) {
+            return;
+        }
+        if (frame >= 0) {
+            times[candidate][frame] = nanos;
+        }
+        candidate++;
+        if (candidate < candidates.length) {
+            return;
+        }
+        candidate = 0;
+        frame++;
+        if (frame < framesPerCandidate) {
+            return;
+        }
+
+        int fastest = 0;
+        long fastestMedian = Long.MAX_VALUE;
+        for (int i = 0; i < candidates.length; i++) {
+            long median = median(times[i]);
+            if (listener != null) {
+                listener.onCandidateMeasured(candidates[i], median);
+            }
+            if (median < fastestMedian) {
+                fastest = i;
+                fastestMedian = median;
+            }
+        }
+        persist(configuration, candidates[fastest].getName());
+        select(candidates[fastest], false);
+    }
+
+    /**
+     * Forget the persisted choices, the next wheels measure again
+     */
+    public void clearPersistedChoices() {
+        getPreferences().edit().clear().apply();
+    }
+
+    private void persist(final String configuration, final String name) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                getPreferences().edit().putString(configuration, name).apply();
+            }
+        }, "RendererTuner persist").start();
+    }
+
+    private void select(WheelRenderer renderer, boolean restored) {
+        selected = renderer;
+        if (listener != null) {
+            listener.onRendererSelected(renderer, restored);
+        }
+    }
+
+    private static long median(long[] values) {
+        // Sorted in place, the order of the frames is not needed anymore
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private SharedPreferences getPreferences() {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    public interface Listener {
+        /**
+         * Method to call when no choice was persisted for the configuration
+         * and the candidates start to be measured
+         */
+        void onTuningStarted(String configuration);
+
+        /**
+         * Method to call when a candidate has drawn all its frames
+         *
+         * @param medianNanos the median draw time of its frames, in nanoseconds
+         */
+        void onCandidateMeasured(WheelRenderer candidate, long medianNanos);
+
+        /**
+         * Method to call when the renderer of the wheel is pinned
+         *
+         * @param restored true if the choice was persisted by an earlier tuning
+         */
+        void onRendererSelected(WheelRenderer renderer, boolean restored);
+    }
+}
@@ -0,0 +1,178 @@
+package com.pnikosis.materialishprogress;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.PixelFormat;
+import android.util.AttributeSet;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * A wheel drawn on a render thread into its own surface, it keeps spinning while
+ * the UI thread is blocked, e.g. while a heavy screen is inflated.
+ * <p/>
+ * It takes the same attributes as {@link ProgressWheel}, with the bar, rim and arrow
+ * of the style; the color sequence and the gradient of the bar are not drawn.
+ * The surface is placed on top of the window, over the other views.
+ */
+public class SurfaceProgressWheel extends SurfaceView implements SurfaceHolder.Callback {
+    private WheelStyle style;
+    private final WheelRenderLoop loop;
+    private final SurfaceTarget target = new SurfaceTarget();
+    private Thread renderThread;
+
+    public SurfaceProgressWheel(Context context) {
+        this(context, null);
+    }
+
+    public SurfaceProgressWheel(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        style = attrs != null ? WheelStyle.obtain(context, attrs) : WheelStyle.DEFAULT;
+        loop = new WheelRenderLoop(target, style);
+
+        SurfaceHolder holder = getHolder();
+        holder.setFormat(PixelFormat.TRANSLUCENT);
+        holder.addCallback(this);
+        setZOrderOnTop(true);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int viewWidth = style.circleRadius + getPaddingLeft() + getPaddingRight();
+        int viewHeight = style.circleRadius + getPaddingTop() + getPaddingBottom();
+
+        setMeasuredDimension(resolveSize(viewWidth, widthMeasureSpec), resolveSize(viewHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        loop.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+    }
+
+    //----------------------------------
+    //Surface
+    //----------------------------------
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = loop.start();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        target.width = width;
+        target.height = height;
+        loop.requestRender();
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // The surface can't be drawn once this method returns
+        loop.quit();
+        boolean interrupted = false;
+        while (renderThread.isAlive()) {
+            try {
+                renderThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        renderThread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //----------------------------------
+    //Getters + setters
+    //----------------------------------
+
+    /**
+     * Puts the view on spin mode
+     */
+    public void spin() {
+        loop.spin();
+    }
+
+    /**
+     * Turn off spin mode
+     */
+    public void stopSpinning() {
+        loop.stopSpinning();
+    }
+
+    /**
+     * Check if the wheel is currently spinning
+     */
+    public boolean isSpinning() {
+        return loop.isSpinning();
+    }
+
+    /**
+     * Reset the count (in increment mode)
+     */
+    public void resetCount() {
+        loop.resetCount();
+    }
+
+    /**
+     * Set the progress to a specific value,
+     * the bar will smoothly animate until that value
+     *
+     * @param progress the progress between 0 and 1
+     */
+    public void setProgress(float progress) {
+        loop.setProgress(progress);
+    }
+
+    /**
+     * Sets the base spinning speed, in full circle turns per second
+     * (1.0 equals on full turn in one second), this value also is applied for
+     * the smoothness when setting a progress
+     *
+     * @param spinSpeed the desired base speed in full turns per second
+     */
+    public void setSpinSpeed(float spinSpeed) {
+        loop.setSpinSpeed(spinSpeed);
+    }
+
+    public WheelStyle getStyle() {
+        return style;
+    }
+
+    public void setStyle(WheelStyle style) {
+        boolean resize = style.circleRadius != this.style.circleRadius;
+        this.style = style;
+        loop.setStyle(style);
+        if (resize) {
+            requestLayout();
+        }
+    }
+
+    private class SurfaceTarget implements RenderTarget {
+        volatile int width;
+        volatile int height;
+
+        @Override
+        public Canvas lockCanvas() {
+            return getHolder().lockCanvas();
+        }
+
+        @Override
+        public void unlockCanvasAndPost(Canvas canvas) {
+            getHolder().unlockCanvasAndPost(canvas);
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+    }
+}
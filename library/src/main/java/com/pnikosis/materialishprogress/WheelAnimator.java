@@ -0,0 +1,343 @@
+package com.pnikosis.materialishprogress;
+
+/**
+ * The animation state of a {@link ProgressWheel}, without any Android dependency
+ * so it can also be driven off-device (see {@link FrameTraceReplayer}).
+ * <p/>
+ * Every method that changes the state takes the current uptime as a parameter
+ * and is reported to the attached {@link FrameTrace}, if any.
+ */
+class WheelAnimator {
+    static final int barLength = 16;
+    static final int barMaxLength = 270;
+    static final long pauseGrowingTime = 200;
+    // Rotation of the arrow head over a whole pull, in degrees
+    static final float pullRotation = 180;
+
+    // The flags returned by advance()
+    static final int FRAME_INVALIDATE = 1;
+    static final int FRAME_TURN_COMPLETED = 1 << 1;
+    static final int FRAME_SHOW_ARROW = 1 << 2;
+
+    double timeStartGrowing = 0;
+    double barSpinCycleTime = 460;
+    float barExtraLength = 0;
+    boolean barGrowingFromFront = false;
+    long pausedTimeWithoutGrowing = 0;
+    //The amount of degrees per second
+    float spinSpeed = 230.0f;
+    // The last time the spinner was animated
+    long lastTimeAnimated = 0;
+    float mProgress = 0.0f;
+    float mTargetProgress = 0.0f;
+    boolean isSpinning = false;
+
+    boolean isStartingArrow = true;
+    boolean isFinishingArrow = false;
+    boolean isPostFinishingArrow = false;
+    // The arrow follows a drag instead of the clock
+    boolean isPulling = false;
+
+    FrameTrace trace;
+
+    /**
+     * Copy the whole animation state, the trace is not copied
+     */
+    void copyFrom(WheelAnimator other) {
+        timeStartGrowing = other.timeStartGrowing;
+        barSpinCycleTime = other.barSpinCycleTime;
+        barExtraLength = other.barExtraLength;
+        barGrowingFromFront = other.barGrowingFromFront;
+        pausedTimeWithoutGrowing = other.pausedTimeWithoutGrowing;
+        spinSpeed = other.spinSpeed;
+        lastTimeAnimated = other.lastTimeAnimated;
+        mProgress = other.mProgress;
+        mTargetProgress = other.mTargetProgress;
+        isSpinning = other.isSpinning;
+        isStartingArrow = other.isStartingArrow;
+        isFinishingArrow = other.isFinishingArrow;
+        isPostFinishingArrow = other.isPostFinishingArrow;
+        isPulling = other.isPulling;
+    }
+
+    /**
+     * Advance the animation for a frame drawn at the given time
+     *
+     * @return a combination of the FRAME_* flags
+     */
+    int advance(long now) {
+        record(FrameTrace.FRAME, now, 0);
+
+        boolean mustInvalidate = false;
+
+        if (isSpinning) {
+            //Draw the spinning bar
+            mustInvalidate = true;
+        }
+        long deltaTime = (now - lastTimeAnimated) / 2;
+        float deltaNormalized = deltaTime * spinSpeed / 1000.0f;
+        if (!isSpinning) {
+            pausedTimeWithoutGrowing = pauseGrowingTime;
+            timeStartGrowing = 0;
+            deltaTime = 0;
+        }
+
+        int flags = 0;
+        if (!isPulling) {
+            updateBarLength(deltaTime);
+            mProgress += deltaNormalized;
+        }
+        if (mProgress > 360) {
+            mProgress -= 360f;
+
+            // A full turn has been completed
+            flags |= FRAME_TURN_COMPLETED;
+        }
+        lastTimeAnimated = now;
+
+        if (barGrowingFromFront && isPostFinishingArrow) {
+            isFinishingArrow = true;
+            isPostFinishingArrow = false;
+        }
+
+        boolean isLastDrawArrow = false;
+        if (barGrowingFromFront) {
+            isStartingArrow = false;
+        }
+        if (isFinishingArrow && !barGrowingFromFront) {
+            isStartingArrow = false;
+            isFinishingArrow = false;
+            isSpinning = false;
+            mustInvalidate = false;
+            isLastDrawArrow = true;
+        }
+
+        boolean startSpinning = !barGrowingFromFront && isStartingArrow;
+        boolean endSpinning = barGrowingFromFront && isFinishingArrow;
+        if (startSpinning || endSpinning || isLastDrawArrow) {
+            flags |= FRAME_SHOW_ARROW;
+        }
+        if (mustInvalidate) {
+            flags |= FRAME_INVALIDATE;
+        }
+        return flags;
+    }
+
+    /**
+     * @return the progress the next frame would show if it was drawn at the given time,
+     * without advancing the animation
+     */
+    float progressAt(long now) {
+        if (isPulling) {
+            return mProgress;
+        }
+        long deltaTime = (now - lastTimeAnimated) / 2;
+        float progress = mProgress + deltaTime * spinSpeed / 1000.0f;
+        return progress > 360 ? progress - 360f : progress;
+    }
+
+    private void updateBarLength(long deltaTimeInMilliSeconds) {
+        if (pausedTimeWithoutGrowing >= pauseGrowingTime) {
+            timeStartGrowing += deltaTimeInMilliSeconds;
+
+            if (timeStartGrowing > barSpinCycleTime) {
+                // We completed a size change cycle
+                // (growing or shrinking)
+                timeStartGrowing -= barSpinCycleTime;
+                //if(barGrowingFromFront) {
+                pausedTimeWithoutGrowing = 0;
+                //}
+                barGrowingFromFront = !barGrowingFromFront;
+            }
+
+            float newLength = barExtraLengthAt(timeStartGrowing, barSpinCycleTime, barGrowingFromFront);
+            if (!barGrowingFromFront) {
+                mProgress += (barExtraLength - newLength);
+            }
+            barExtraLength = newLength;
+        } else {
+            pausedTimeWithoutGrowing += deltaTimeInMilliSeconds;
+        }
+    }
+
+    /**
+     * @return the extra length of the bar at the given time of a size change cycle
+     */
+    static float barExtraLengthAt(double timeStartGrowing, double barSpinCycleTime, boolean growingFromFront) {
+        float distance =
+                (float) Math.cos((timeStartGrowing / barSpinCycleTime + 1) * Math.PI) / 2 + 0.5f;
+        float destLength = (barMaxLength - barLength);
+        return growingFromFront ? distance * destLength : destLength * (1 - distance);
+    }
+
+    void spin(long now) {
+        record(FrameTrace.SPIN, now, 0);
+
+        lastTimeAnimated = now;
+        if (!isSpinning) {
+            isSpinning = true;
+            isStartingArrow = true;
+        }
+        if (isPulling) {
+            // Start the shrinking of the bar at its current length, with the head where it is
+            isPulling = false;
+            float distance = 1 - barExtraLength / (barMaxLength - barLength);
+            timeStartGrowing = barSpinCycleTime * (1 - Math.acos(2 * distance - 1) / Math.PI);
+            pausedTimeWithoutGrowing = pauseGrowingTime;
+            barGrowingFromFront = false;
+        }
+    }
+
+    /**
+     * Show the starting arrow for a drag, the bar grows and the head turns
+     * with the pulled fraction. spin() carries on from this state, a running spin is left.
+     *
+     * @param fraction the pulled distance over the distance to refresh, between 0 and 1
+     */
+    void pull(float fraction, long now) {
+        record(FrameTrace.PULL, now, fraction);
+
+        fraction = Math.max(0, Math.min(1, fraction));
+        // The spinner turns back into the arrow
+        isSpinning = false;
+        isPulling = true;
+        isStartingArrow = true;
+        isFinishingArrow = false;
+        isPostFinishingArrow = false;
+        barGrowingFromFront = false;
+        barExtraLength = fraction * (barMaxLength - barLength);
+        float head = -90 + fraction * pullRotation;
+        mProgress = head + 90 - barLength - barExtraLength;
+        lastTimeAnimated = now;
+    }
+
+    void stopSpinning(long now) {
+        record(FrameTrace.STOP_SPINNING, now, 0);
+
+        if (isSpinning) {
+            isFinishingArrow = false;
+            isPostFinishingArrow = true;
+        }
+    }
+
+    void resetCount(long now) {
+        record(FrameTrace.RESET_COUNT, now, 0);
+
+        mProgress = 0.0f;
+        mTargetProgress = 0.0f;
+    }
+
+    /**
+     * Leave the spin mode at once, without the finishing arrow
+     */
+    void cancelSpin(long now) {
+        record(FrameTrace.CANCEL_SPIN, now, 0);
+
+        if (isSpinning) {
+            mProgress = 0.0f;
+            isSpinning = false;
+        }
+    }
+
+    /**
+     * @return true if the target progress changed
+     */
+    boolean setProgress(float progress, long now) {
+        record(FrameTrace.SET_PROGRESS, now, progress);
+
+        if (progress > 1.0f) {
+            progress -= 1.0f;
+        } else if (progress < 0) {
+            progress = 0;
+        }
+
+        if (progress == mTargetProgress) {
+            return false;
+        }
+
+        // If we are currently in the right position
+        // we set again the last time animated so the
+        // animation starts smooth from here
+        if (mProgress == mTargetProgress) {
+            lastTimeAnimated = now;
+        }
+
+        mTargetProgress = Math.min(progress * 360.0f, 360.0f);
+        return true;
+    }
+
+    /**
+     * @return true if the progress changed
+     */
+    boolean setInstantProgress(float progress, long now) {
+        record(FrameTrace.SET_INSTANT_PROGRESS, now, progress);
+
+        if (isSpinning) {
+            mProgress = 0.0f;
+            isSpinning = false;
+        }
+
+        if (progress > 1.0f) {
+            progress -= 1.0f;
+        } else if (progress < 0) {
+            progress = 0;
+        }
+
+        if (progress == mTargetProgress) {
+            return false;
+        }
+
+        mTargetProgress = Math.min(progress * 360.0f, 360.0f);
+        mProgress = mTargetProgress;
+        lastTimeAnimated = now;
+        return true;
+    }
+
+    void setVisible(boolean visible, long now) {
+        record(FrameTrace.VISIBILITY, now, visible ? 1 : 0);
+
+        if (visible) {
+            lastTimeAnimated = now;
+        }
+    }
+
+    void setSpinSpeed(float spinSpeed, long now) {
+        record(FrameTrace.SPIN_SPEED, now, spinSpeed);
+
+        this.spinSpeed = spinSpeed;
+    }
+
+    /**
+     * @param barSpinCycleTime the duration of a growing or a shrinking of the bar, in milliseconds
+     */
+    void setBarSpinCycleTime(double barSpinCycleTime, long now) {
+        record(FrameTrace.BAR_SPIN_CYCLE_TIME, now, (float) barSpinCycleTime);
+
+        this.barSpinCycleTime = barSpinCycleTime;
+    }
+
+    /**
+     * Animate from the given time on, the time since the last frame is not animated
+     */
+    void resetTime(long now) {
+        record(FrameTrace.RESET_TIME, now, 0);
+
+        lastTimeAnimated = now;
+    }
+
+    /**
+     * Leave the spin and the pull at once, without the finishing arrow
+     */
+    void clearSpinning(long now) {
+        record(FrameTrace.CLEAR_SPINNING, now, 0);
+
+        isSpinning = false;
+        isPulling = false;
+    }
+
+    private void record(byte type, long time, float value) {
+        if (trace != null) {
+            trace.record(type, time, value);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.pnikosis.materialishprogress;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A controllable clock for UI tests. While it is installed the wheels take their time
+ * from it instead of SystemClock and stop invalidating themselves, so the main looper
+ * goes idle even with a spinner on screen; the test moves the animations forward with
+ * {@link #advanceBy(long)} and asserts on the state.
+ * <pre>
+ * WheelClock clock = WheelClock.install();
+ * wheel.spin();
+ * clock.advanceBy(1000);
+ * ...
+ * WheelClock.uninstall();
+ * </pre>
+ * The methods must be called from the main thread.
+ */
+public final class WheelClock {
+    private static volatile WheelClock installed;
+
+    private final Map<ProgressWheel, Boolean> wheels = new WeakHashMap<ProgressWheel, Boolean>();
+    private long time;
+    private long frameInterval = 1000 / 60;
+
+    private WheelClock(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Install a clock starting at the current uptime, all the wheels follow it:
+     * the ones created before from their next frame
+     */
+    public static WheelClock install() {
+        WheelClock clock = new WheelClock(SystemClock.uptimeMillis());
+        installed = clock;
+        return clock;
+    }
+
+    /**
+     * Go back to SystemClock, the wheels resume from their current state
+     */
+    public static void uninstall() {
+        WheelClock clock = installed;
+        installed = null;
+        if (clock == null) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        for (ProgressWheel wheel : new ArrayList<ProgressWheel>(clock.wheels.keySet())) {
+            if (wheel != null) {
+                wheel.clock = null;
+                wheel.onClockChanged(clock.time, now);
+            }
+        }
+        clock.wheels.clear();
+    }
+
+    /**
+     * @return the time of the installed clock, or the uptime
+     */
+    static long now() {
+        WheelClock clock = installed;
+        return clock != null ? clock.time : SystemClock.uptimeMillis();
+    }
+
+    static void register(ProgressWheel wheel) {
+        WheelClock clock = installed;
+        if (clock != null && wheel.clock != clock) {
+            long previousNow = wheel.clock != null ? wheel.clock.time : SystemClock.uptimeMillis();
+            clock.wheels.put(wheel, Boolean.TRUE);
+            wheel.clock = clock;
+            wheel.onClockChanged(previousNow, clock.time);
+        }
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @param frameInterval the time between two frames stepped by advanceBy(), in milliseconds
+     */
+    public void setFrameInterval(long frameInterval) {
+        if (frameInterval <= 0) {
+            throw new IllegalArgumentException("frameInterval must be positive");
+        }
+        this.frameInterval = frameInterval;
+    }
+
+    /**
+     * Move the time forward, the animating wheels are stepped frame by frame as they
+     * would be drawn, then invalidated once to show their state. The spins and stops
+     * debounced by {@link ProgressWheel#setSpinDebounce(long, long)} are applied on the way.
+     */
+    public void advanceBy(long millis) {
+        List<ProgressWheel> live = new ArrayList<ProgressWheel>(wheels.keySet());
+        boolean[] stepped = new boolean[live.size()];
+        long end = time + millis;
+        while (time < end) {
+            time = Math.min(end, time + frameInterval);
+            for (int i = 0; i < live.size(); i++) {
+                ProgressWheel wheel = live.get(i);
+                if (wheel == null) {
+                    continue;
+                }
+                // The debounce of spin() and stopSpinning() runs on this time too
+                wheel.runDueSpinState(time);
+                if (wheel.needsFrame()) {
+                    wheel.stepFrame(time);
+                    stepped[i] = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < live.size(); i++) {
+            if (stepped[i]) {
+                live.get(i).invalidate();
+            }
+        }
+    }
+
+    /**
+     * Step the given number of frames
+     */
+    public void advanceFrames(int frames) {
+        advanceBy(frames * frameInterval);
+    }
+}
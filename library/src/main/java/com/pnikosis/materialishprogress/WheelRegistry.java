@@ -0,0 +1,218 @@
+package com.pnikosis.materialishprogress;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An opt-in debug registry of the live {@link ProgressWheel} instances, to find the wheels
+ * that keep spinning where nobody can see them, for example in a retained fragment or
+ * a dismissed dialog, holding their context.
+ * <p/>
+ * The wheels are only referenced weakly. All the methods must be called from the main thread.
+ * <pre>
+ * if (BuildConfig.DEBUG) {
+ *     WheelRegistry.enable();
+ * }
+ * </pre>
+ */
+public final class WheelRegistry {
+    private static final String TAG = WheelRegistry.class.getSimpleName();
+
+    private static boolean enabled = false;
+    private static long unseenTimeout = 5000;
+    private static LeakListener leakListener;
+    private static final Map<ProgressWheel, Tracking> wheels = new WeakHashMap<ProgressWheel, Tracking>();
+    private static Handler handler;
+    private static final Runnable check = new Runnable() {
+        @Override
+        public void run() {
+            checkUnseenWheels();
+            if (enabled) {
+                handler.postDelayed(this, checkInterval());
+            }
+        }
+    };
+
+    private WheelRegistry() {
+    }
+
+    /**
+     * Start tracking the wheels, the ones created before are tracked once attached to a window
+     */
+    public static void enable() {
+        if (enabled) {
+            return;
+        }
+        enabled = true;
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        handler.postDelayed(check, checkInterval());
+    }
+
+    /**
+     * Stop tracking the wheels and forget about the tracked ones
+     */
+    public static void disable() {
+        enabled = false;
+        wheels.clear();
+        if (handler != null) {
+            handler.removeCallbacks(check);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the hook called when a wheel keeps animating while it is detached or not shown,
+     * by default a warning is logged
+     *
+     * @param listener      the listener, or null to log a warning
+     * @param unseenTimeout how long a wheel can animate unseen before being reported, in milliseconds
+     */
+    public static void setLeakListener(LeakListener listener, long unseenTimeout) {
+        if (unseenTimeout <= 0) {
+            throw new IllegalArgumentException("unseenTimeout must be positive");
+        }
+        WheelRegistry.leakListener = listener;
+        WheelRegistry.unseenTimeout = unseenTimeout;
+    }
+
+    /**
+     * @return the time between two checks, never 0 so the check doesn't run in a loop
+     */
+    private static long checkInterval() {
+        return Math.max(1, unseenTimeout / 2);
+    }
+
+    static void register(ProgressWheel wheel) {
+        if (enabled && !wheels.containsKey(wheel)) {
+            wheels.put(wheel, new Tracking());
+        }
+    }
+
+    /**
+     * @return the number of live wheels
+     */
+    public static int getLiveCount() {
+        return wheels.size();
+    }
+
+    /**
+     * @return the number of wheels animating, seen or not
+     */
+    public static int getAnimatingCount() {
+        int count = 0;
+        for (ProgressWheel wheel : wheels.keySet()) {
+            if (wheel != null && wheel.isSpinning()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of wheels animating while detached from their window or not shown
+     */
+    public static int getAnimatingUnseenCount() {
+        int count = 0;
+        for (ProgressWheel wheel : wheels.keySet()) {
+            if (wheel != null && isAnimatingUnseen(wheel)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isAnimatingUnseen(ProgressWheel wheel) {
+        return wheel.isSpinning() && (!wheel.isAttached || !wheel.isShown());
+    }
+
+    private static void checkUnseenWheels() {
+        long now = SystemClock.uptimeMillis();
+        List<ProgressWheel> leaked = null;
+        for (Map.Entry<ProgressWheel, Tracking> entry : wheels.entrySet()) {
+            ProgressWheel wheel = entry.getKey();
+            Tracking tracking = entry.getValue();
+            if (wheel == null || !isAnimatingUnseen(wheel)) {
+                tracking.unseenSince = -1;
+                tracking.reported = false;
+                continue;
+            }
+
+            if (tracking.unseenSince < 0) {
+                tracking.unseenSince = now;
+            } else if (!tracking.reported && now - tracking.unseenSince >= unseenTimeout) {
+                // Reported once until the wheel is seen or stops
+                tracking.reported = true;
+                if (leaked == null) {
+                    leaked = new ArrayList<ProgressWheel>();
+                }
+                leaked.add(wheel);
+            }
+        }
+
+        if (leaked == null) {
+            return;
+        }
+        // Out of the iteration, the listener may stop the wheels
+        for (ProgressWheel wheel : leaked) {
+            long unseenTime = now - wheels.get(wheel).unseenSince;
+            if (leakListener != null) {
+                leakListener.onAnimatingUnseen(wheel, unseenTime);
+            } else {
+                Log.w(TAG, "ProgressWheel animating unseen for " + unseenTime + "ms: " + describe(wheel));
+            }
+        }
+    }
+
+    private static String describe(ProgressWheel wheel) {
+        return ProgressWheel.class.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(wheel))
+                + " context=" + wheel.getContext().getClass().getName();
+    }
+
+    /**
+     * Print the tracked wheels, their state and the frames each one has drawn
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("ProgressWheel registry: " + getLiveCount() + " live, "
+                + getAnimatingCount() + " animating, " + getAnimatingUnseenCount() + " animating unseen");
+        for (ProgressWheel wheel : wheels.keySet()) {
+            if (wheel == null) {
+                continue;
+            }
+            writer.println("  " + describe(wheel)
+                    + " attached=" + wheel.isAttached
+                    + " shown=" + wheel.isShown()
+                    + " spinning=" + wheel.isSpinning()
+                    + " frames=" + wheel.framesDrawn);
+        }
+        writer.flush();
+    }
+
+    public interface LeakListener {
+        /**
+         * Method to call when a wheel has been animating while detached
+         * or not shown for longer than the timeout, once until it is seen again or stops
+         *
+         * @param wheel      the wheel, do not keep a reference to it
+         * @param unseenTime how long it has been animating unseen, in milliseconds
+         */
+        void onAnimatingUnseen(ProgressWheel wheel, long unseenTime);
+    }
+
+    private static class Tracking {
+        long unseenSince = -1;
+        boolean reported = false;
+    }
+}
@@ -0,0 +1,308 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.RectF;
+import android.os.SystemClock;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Animates and draws a wheel on its own thread, into a {@link RenderTarget}, so the spinner
+ * keeps turning while the UI thread is busy.
+ * <p/>
+ * The UI thread only writes the requested state into volatile fields and wakes the render
+ * thread up, it never waits for it. The render thread applies what changed since the last
+ * frame, the state of the animation is only touched by the render thread. The mode of the
+ * wheel is requested as a single snapshot, the last call of spin(), stopSpinning() or
+ * setProgress() before a frame wins.
+ * A loop that doesn't animate parks its thread until something changes.
+ * The thread is started with {@link #start()} and returns after {@link #quit()}.
+ * <p/>
+ * {@link #renderFrame(long)} draws a single frame on the calling thread, to drive the loop
+ * without a thread, e.g. against a {@link BitmapRenderTarget}.
+ */
+public class WheelRenderLoop {
+    private static final long frameInterval = 1000 / 60;
+    private static final int MODE_SPIN = 0;
+    private static final int MODE_STOP_SPINNING = 1;
+    private static final int MODE_PROGRESS = 2;
+
+    private final RenderTarget target;
+    private final WheelAnimator animator = new WheelAnimator();
+    private final RectF circleBounds = new RectF();
+    private final WheelRenderer.Frame frame = new WheelRenderer.Frame(circleBounds);
+    private final WheelRenderer renderer = new ArcRenderer();
+
+    // Written by the UI thread, read by the render thread
+    private volatile boolean running = false;
+    private volatile Thread thread;
+    // A new instance for each call, so a call equal to an earlier one is applied again
+    private volatile ModeRequest requestedMode;
+    // left, top, right, bottom, replaced as a whole
+    private volatile int[] requestedPadding = new int[4];
+    private volatile int requestedResets = 0;
+    private volatile float requestedSpinSpeed;
+    private volatile WheelStyle requestedStyle;
+    private volatile boolean isRenderRequested = true;
+
+    // What the render thread has applied
+    private ModeRequest appliedMode;
+    private int[] padding;
+    private int appliedResets = 0;
+    private float appliedSpinSpeed;
+    private WheelStyle style;
+    private int boundsWidth = -1;
+    private int boundsHeight = -1;
+
+    // Written by the render thread, read by the UI thread
+    private volatile boolean isSpinning;
+
+    public WheelRenderLoop(RenderTarget target, WheelStyle style) {
+        this.target = target;
+        requestedStyle = style;
+        requestedSpinSpeed = style.spinSpeed;
+        requestedMode = style.indeterminate ? new ModeRequest(MODE_SPIN, 0) : null;
+        appliedSpinSpeed = animator.spinSpeed;
+        isSpinning = style.indeterminate;
+    }
+
+    //----------------------------------
+    //UI thread
+    //----------------------------------
+
+    public void spin() {
+        requestedMode = new ModeRequest(MODE_SPIN, 0);
+        isSpinning = true;
+        requestRender();
+    }
+
+    public void stopSpinning() {
+        requestedMode = new ModeRequest(MODE_STOP_SPINNING, 0);
+        requestRender();
+    }
+
+    /**
+     * @param progress the progress between 0 and 1, it leaves the spin mode
+     */
+    public void setProgress(float progress) {
+        requestedMode = new ModeRequest(MODE_PROGRESS, progress);
+        requestRender();
+    }
+
+    public void resetCount() {
+        requestedResets++;
+        requestRender();
+    }
+
+    /**
+     * @param spinSpeed the number of turns per second
+     */
+    public void setSpinSpeed(float spinSpeed) {
+        requestedSpinSpeed = spinSpeed * 360.0f;
+        requestRender();
+    }
+
+    public void setStyle(WheelStyle style) {
+        requestedStyle = style;
+        requestRender();
+    }
+
+    /**
+     * The circle is drawn inside the padding of the target
+     */
+    public void setPadding(int left, int top, int right, int bottom) {
+        int[] current = requestedPadding;
+        if (current[0] == left && current[1] == top && current[2] == right && current[3] == bottom) {
+            return;
+        }
+        requestedPadding = new int[]{left, top, right, bottom};
+        requestRender();
+    }
+
+    /**
+     * @return true while the spinner is turning, as last seen by the render thread
+     */
+    public boolean isSpinning() {
+        return isSpinning;
+    }
+
+    /**
+     * Draw a frame even if nothing changed, e.g. when the target was resized
+     */
+    public void requestRender() {
+        isRenderRequested = true;
+        Thread thread = this.thread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Start a render thread running the loop until quit(), a quit() right after
+     * stops it even if the thread has not started to run yet
+     *
+     * @return the render thread, to join it after quit()
+     */
+    public Thread start() {
+        if (thread != null) {
+            throw new IllegalStateException("The render loop is already running");
+        }
+        // Set before the thread starts, so it can't override a quit() that comes first
+        running = true;
+        Thread renderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "ProgressWheel render");
+        thread = renderThread;
+        renderThread.start();
+        return renderThread;
+    }
+
+    /**
+     * Stop the loop, the thread running it returns after the current frame
+     */
+    public void quit() {
+        running = false;
+        requestRender();
+    }
+
+    //----------------------------------
+    //Render thread
+    //----------------------------------
+
+    private void loop() {
+        try {
+            while (running) {
+                long frameStart = SystemClock.uptimeMillis();
+                boolean animating = renderFrame(frameStart);
+
+                if (!animating && !isRenderRequested) {
+                    // Until requestRender(), spurious wake ups only draw one more frame
+                    LockSupport.park(this);
+                    // The time parked is not animated
+                    animator.setVisible(true, SystemClock.uptimeMillis());
+                    continue;
+                }
+                long wait = frameStart + frameInterval - SystemClock.uptimeMillis();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait * 1000000);
+                }
+            }
+        } finally {
+            if (thread == Thread.currentThread()) {
+                thread = null;
+            }
+        }
+    }
+
+    /**
+     * Apply the requested state, advance the animation and draw a frame
+     *
+     * @param now the uptime of the frame, in milliseconds
+     * @return true if the wheel is animating and needs another frame
+     */
+    public boolean renderFrame(long now) {
+        isRenderRequested = false;
+        applyRequestedState(now);
+
+        int width = target.getWidth();
+        int height = target.getHeight();
+        int[] requested = requestedPadding;
+        if (requested != padding) {
+            padding = requested;
+            boundsWidth = -1;
+        }
+        if (width != boundsWidth || height != boundsHeight) {
+            style.computeBounds(circleBounds, width, height, padding[0], padding[1], padding[2], padding[3]);
+            boundsWidth = width;
+            boundsHeight = height;
+        }
+
+        int flags = animator.advance(now);
+        isSpinning = animator.isSpinning;
+
+        Canvas canvas = target.lockCanvas();
+        if (canvas == null) {
+            return (flags & WheelAnimator.FRAME_INVALIDATE) != 0;
+        }
+        try {
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            canvas.drawArc(circleBounds, 360, 360, false, style.rimPaint);
+
+            frame.width = width;
+            frame.height = height;
+            frame.from = animator.mProgress - 90;
+            frame.length = WheelAnimator.barLength + animator.barExtraLength;
+            frame.showArrow = (flags & WheelAnimator.FRAME_SHOW_ARROW) != 0;
+            // The paints of a style are never changed, they can be read from this thread
+            frame.barPaint = style.barPaint;
+            frame.arrowPaint = style.arrowPaint;
+            frame.style = style;
+            renderer.draw(canvas, frame);
+        } finally {
+            target.unlockCanvasAndPost(canvas);
+        }
+
+        return (flags & WheelAnimator.FRAME_INVALIDATE) != 0;
+    }
+
+    private void applyRequestedState(long now) {
+        WheelStyle requested = requestedStyle;
+        if (requested != style) {
+            if (style == null) {
+                // First frame
+                animator.resetTime(now);
+            }
+            style = requested;
+            animator.setBarSpinCycleTime(style.barSpinCycleTime, now);
+            boundsWidth = -1;
+        }
+
+        float spinSpeed = requestedSpinSpeed;
+        if (spinSpeed != appliedSpinSpeed) {
+            animator.setSpinSpeed(spinSpeed, now);
+            appliedSpinSpeed = spinSpeed;
+        }
+
+        int resets = requestedResets;
+        if (resets != appliedResets) {
+            animator.resetCount(now);
+            appliedResets = resets;
+        }
+
+        ModeRequest mode = requestedMode;
+        if (mode != null && mode != appliedMode) {
+            switch (mode.mode) {
+                case MODE_SPIN:
+                    animator.spin(now);
+                    break;
+                case MODE_STOP_SPINNING:
+                    if (animator.isSpinning) {
+                        animator.stopSpinning(now);
+                    }
+                    break;
+                case MODE_PROGRESS:
+                    if (animator.isSpinning) {
+                        animator.cancelSpin(now);
+                    }
+                    animator.setProgress(mode.progress, now);
+                    break;
+            }
+            appliedMode = mode;
+        }
+    }
+
+    private static final class ModeRequest {
+        final int mode;
+        final float progress;
+
+        ModeRequest(int mode, float progress) {
+            this.mode = mode;
+            this.progress = progress;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * Draws the bar and the arrow of a {@link ProgressWheel}, the rim is drawn by the wheel.
+ * A renderer may keep caches, so an instance belongs to a single wheel.
+ *
+ * @see ProgressWheel#setRenderer(WheelRenderer)
+ * @see RendererTuner
+ */
+public interface WheelRenderer {
+    /**
+     * @return the name of the renderer, the choice of a {@link RendererTuner} is persisted with it
+     */
+    String getName();
+
+    void draw(Canvas canvas, Frame frame);
+
+    /**
+     * What to draw, the same instance is updated for every frame of a wheel
+     */
+    final class Frame {
+        final RectF bounds;
+        int width;
+        int height;
+        float from;
+        float length;
+        boolean showArrow;
+        Paint barPaint;
+        Paint arrowPaint;
+        WheelStyle style;
+
+        Frame(RectF bounds) {
+            this.bounds = bounds;
+        }
+
+        /**
+         * @return the bounds of the circle
+         */
+        public RectF getBounds() {
+            return bounds;
+        }
+
+        /**
+         * @return the width of the view
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @return the height of the view
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return the start angle of the bar, in degrees
+         */
+        public float getFrom() {
+            return from;
+        }
+
+        /**
+         * @return the length of the bar, in degrees
+         */
+        public float getLength() {
+            return length;
+        }
+
+        public boolean isShowArrow() {
+            return showArrow;
+        }
+
+        public Paint getBarPaint() {
+            return barPaint;
+        }
+
+        public Paint getArrowPaint() {
+            return arrowPaint;
+        }
+
+        public WheelStyle getStyle() {
+            return style;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.pnikosis.materialishprogress;
+
+import java.util.Random;
+
+/**
+ * The animation state of a {@link ProgressWheel} kept outside of the view,
+ * typically one per item of a list. {@link ProgressWheel#bind(WheelState)} puts the
+ * wheel in this state, {@link ProgressWheel#unbind()} saves the wheel's state back into it.
+ * <p/>
+ * The time a state spends unbound doesn't count, a spinner resumes where it was left.
+ */
+public final class WheelState {
+    private static final Random phaseRandom = new Random();
+
+    final WheelAnimator animator = new WheelAnimator();
+    private boolean randomPhase = false;
+    // The state comes from a wheel, its phase is kept
+    private boolean isPhaseSet = false;
+
+    public WheelState() {
+    }
+
+    /**
+     * Spin without the starting arrow, or rest with the arrow
+     */
+    public WheelState spinning(boolean spinning) {
+        animator.isSpinning = spinning;
+        animator.isStartingArrow = !spinning;
+        animator.isFinishingArrow = false;
+        animator.isPostFinishingArrow = false;
+        animator.isPulling = false;
+        return this;
+    }
+
+    /**
+     * @param progress the progress, between 0 and 1
+     */
+    public WheelState progress(float progress) {
+        animator.setInstantProgress(progress, 0);
+        return this;
+    }
+
+    /**
+     * Start a spinner at a random point of its turn and of its bar cycle the first time
+     * it is bound, so the spinners of a list don't turn and complete their turns in lockstep
+     */
+    public WheelState randomPhase(boolean randomPhase) {
+        this.randomPhase = randomPhase;
+        return this;
+    }
+
+    public boolean isSpinning() {
+        return animator.isSpinning;
+    }
+
+    /**
+     * Put the given animator in this state, with its own speed and cycle time
+     */
+    void restore(WheelAnimator target, long now) {
+        float spinSpeed = target.spinSpeed;
+        double barSpinCycleTime = target.barSpinCycleTime;
+        target.copyFrom(animator);
+        target.spinSpeed = spinSpeed;
+        target.barSpinCycleTime = barSpinCycleTime;
+        target.lastTimeAnimated = now;
+
+        if (randomPhase && !isPhaseSet && target.isSpinning) {
+            target.mProgress = phaseRandom.nextFloat() * 360;
+            target.timeStartGrowing = phaseRandom.nextFloat() * barSpinCycleTime;
+            target.barGrowingFromFront = phaseRandom.nextBoolean();
+            // The bar has the length of the phase, and keeps changing from there
+            target.barExtraLength = WheelAnimator.barExtraLengthAt(target.timeStartGrowing,
+                    barSpinCycleTime, target.barGrowingFromFront);
+            target.pausedTimeWithoutGrowing = WheelAnimator.pauseGrowingTime;
+        }
+    }
+
+    void save(WheelAnimator source) {
+        animator.copyFrom(source);
+        isPhaseSet = true;
+    }
+}
@@ -0,0 +1,561 @@
+package com.pnikosis.materialishprogress;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The look of a {@link ProgressWheel}: colors, widths, radius, speeds and arrow mode.
+ * <p/>
+ * A style is immutable, so any number of wheels can share one, see {@link ProgressWheel#setStyle(WheelStyle)}.
+ * The paints are derived from the style once, and shared too, each wheel only keeps its animation state.
+ * Wheels inflated with the same attributes, theme and density share a single parsed style.
+ */
+public final class WheelStyle {
+    // The styles built so far, building an equal style again returns the same one, see Builder#build().
+    // Open addressing by hash, cleared when it gets full: the wheels keep the styles they use
+    private static final WheelStyle[] interned = new WheelStyle[64];
+    private static int internedCount = 0;
+
+    /**
+     * The style of the wheels created without attributes, sizes in pixels
+     */
+    static final WheelStyle DEFAULT = new Builder().build();
+
+    // Parsed styles for each theme, dropped with the theme
+    private static final Map<Resources.Theme, Map<String, WheelStyle>> cache =
+            new WeakHashMap<Resources.Theme, Map<String, WheelStyle>>();
+    private static final int maxStylesPerTheme = 32;
+
+    final int circleRadius;
+    final int barWidth;
+    final int rimWidth;
+    final boolean fillRadius;
+    final int maxArrowLineLength;
+    //In degrees per second
+    final float spinSpeed;
+    final int barSpinCycleTime;
+    final int barColor;
+    final int rimColor;
+    final boolean linearProgress;
+    final boolean lineArrow;
+    final boolean indeterminate;
+    final boolean barGradient;
+    // Sequence of colors for the bar, or null
+    final ColorRamp colorRamp;
+
+    private final int hash;
+
+    // Derived from the style, never modified by the wheels
+    final Paint barPaint = new Paint();
+    final Paint rimPaint = new Paint();
+    final Paint arrowPaint = new Paint();
+
+    private WheelStyle(Builder builder, int hash) {
+        this.hash = hash;
+        circleRadius = builder.circleRadius;
+        barWidth = builder.barWidth;
+        rimWidth = builder.rimWidth;
+        fillRadius = builder.fillRadius;
+        maxArrowLineLength = builder.maxArrowLineLength;
+        spinSpeed = builder.spinSpeed;
+        barSpinCycleTime = builder.barSpinCycleTime;
+        barColor = builder.barColor;
+        rimColor = builder.rimColor;
+        linearProgress = builder.linearProgress;
+        lineArrow = builder.lineArrow;
+        indeterminate = builder.indeterminate;
+        barGradient = builder.barGradient;
+        colorRamp = builder.colorRamp;
+
+        barPaint.setColor(barColor);
+        barPaint.setAntiAlias(true);
+        barPaint.setStyle(Style.STROKE);
+        barPaint.setStrokeWidth(barWidth);
+
+        rimPaint.setColor(rimColor);
+        rimPaint.setAntiAlias(true);
+        rimPaint.setStyle(Style.STROKE);
+        rimPaint.setStrokeWidth(rimWidth);
+
+        arrowPaint.setAntiAlias(true);
+        arrowPaint.setColor(barColor);
+        if (lineArrow) {
+            arrowPaint.setStyle(Style.STROKE);
+            arrowPaint.setStrokeWidth(barWidth);
+        } else {
+            arrowPaint.setStyle(Style.FILL);
+        }
+    }
+
+    private boolean matches(Builder builder) {
+        return circleRadius == builder.circleRadius
+                && barWidth == builder.barWidth
+                && rimWidth == builder.rimWidth
+                && fillRadius == builder.fillRadius
+                && maxArrowLineLength == builder.maxArrowLineLength
+                && spinSpeed == builder.spinSpeed
+                && barSpinCycleTime == builder.barSpinCycleTime
+                && barColor == builder.barColor
+                && rimColor == builder.rimColor
+                && linearProgress == builder.linearProgress
+                && lineArrow == builder.lineArrow
+                && indeterminate == builder.indeterminate
+                && barGradient == builder.barGradient
+                && (colorRamp == null ? builder.colorRamp == null : colorRamp.equals(builder.colorRamp));
+    }
+
+    /**
+     * Compute the bounds of the circle in a view of the given size and padding
+     */
+    void computeBounds(RectF circleBounds, int layout_width, int layout_height,
+                       int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        if (!fillRadius) {
+            // Width should equal to Height, find the min value to setup the circle
+            int minValue = Math.min(layout_width - paddingLeft - paddingRight,
+                    layout_height - paddingBottom - paddingTop);
+
+            int circleDiameter = Math.min(minValue, circleRadius * 2 - barWidth * 2);
+
+            // Calc the Offset if needed for centering the wheel in the available space
+            int xOffset = (layout_width - paddingLeft - paddingRight - circleDiameter) / 2 + paddingLeft;
+            int yOffset = (layout_height - paddingTop - paddingBottom - circleDiameter) / 2 + paddingTop;
+
+            circleBounds.set(xOffset + barWidth, yOffset + barWidth, xOffset + circleDiameter - barWidth,
+                    yOffset + circleDiameter - barWidth);
+        } else {
+            circleBounds.set(paddingLeft + barWidth, paddingTop + barWidth,
+                    layout_width - paddingRight - barWidth, layout_height - paddingBottom - barWidth);
+        }
+    }
+
+    /**
+     * @return a builder initialized with the values of this style
+     */
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    /**
+     * @return the radius of the wheel in pixels
+     */
+    public int getCircleRadius() {
+        return circleRadius;
+    }
+
+    /**
+     * @return the width of the spinning bar in pixels
+     */
+    public int getBarWidth() {
+        return barWidth;
+    }
+
+    /**
+     * @return the width of the wheel's contour in pixels
+     */
+    public int getRimWidth() {
+        return rimWidth;
+    }
+
+    public boolean isFillRadius() {
+        return fillRadius;
+    }
+
+    /**
+     * @return the length of the lines of the line arrow, in pixels
+     */
+    public int getArrowLineLength() {
+        return maxArrowLineLength;
+    }
+
+    /**
+     * @return the base spinning speed, in full circle turns per second
+     */
+    public float getSpinSpeed() {
+        return spinSpeed / 360.0f;
+    }
+
+    /**
+     * @return the duration of a growing or shrinking cycle of the bar, in milliseconds
+     */
+    public int getBarSpinCycleTime() {
+        return barSpinCycleTime;
+    }
+
+    public int getBarColor() {
+        return barColor;
+    }
+
+    public int getRimColor() {
+        return rimColor;
+    }
+
+    public boolean isLinearProgress() {
+        return linearProgress;
+    }
+
+    public boolean isLineArrow() {
+        return lineArrow;
+    }
+
+    /**
+     * @return true if the wheels with this style start spinning when inflated
+     */
+    public boolean isIndeterminate() {
+        return indeterminate;
+    }
+
+    public boolean isBarGradient() {
+        return barGradient;
+    }
+
+    /**
+     * @return the colors of the bar sequence, or null if the bar has a single color
+     */
+    public int[] getBarColors() {
+        return colorRamp != null ? colorRamp.getColors() : null;
+    }
+
+    /**
+     * @return the duration of the transition between two colors of the sequence, in milliseconds
+     */
+    public long getColorCrossFadeTime() {
+        return colorRamp != null ? colorRamp.getCrossFadeTime() : 0;
+    }
+
+    /**
+     * Get the style for the given attributes, parsing them only if no wheel
+     * with the same attributes was inflated before in this theme and density
+     */
+    static WheelStyle obtain(Context context, AttributeSet attrs) {
+        Resources resources = context.getResources();
+        String key = cacheKey(attrs, resources.getDisplayMetrics());
+        Resources.Theme theme = context.getTheme();
+
+        synchronized (cache) {
+            Map<String, WheelStyle> styles = cache.get(theme);
+            WheelStyle style = styles != null ? styles.get(key) : null;
+            if (style != null) {
+                return style;
+            }
+        }
+
+        WheelStyle style;
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.ProgressWheel);
+        try {
+            style = new Builder(context).parse(a, resources).build();
+        } finally {
+            a.recycle();
+        }
+
+        synchronized (cache) {
+            Map<String, WheelStyle> styles = cache.get(theme);
+            if (styles == null) {
+                styles = new HashMap<String, WheelStyle>();
+                cache.put(theme, styles);
+            }
+            if (styles.size() >= maxStylesPerTheme) {
+                // Not worth an LRU, the layouts of an app only use a few styles
+                styles.clear();
+            }
+            styles.put(key, style);
+        }
+        return style;
+    }
+
+    /**
+     * The key is made of the raw values of the wheel attributes, the style and the density,
+     * reading them from the AttributeSet doesn't resolve anything
+     */
+    private static String cacheKey(AttributeSet attrs, DisplayMetrics metrics) {
+        StringBuilder key = new StringBuilder();
+        key.append(metrics.density);
+        if (attrs == null) {
+            return key.toString();
+        }
+
+        key.append('|').append(attrs.getStyleAttribute());
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            int name = attrs.getAttributeNameResource(i);
+            if (isWheelAttribute(name)) {
+                key.append('|').append(name).append('=').append(attrs.getAttributeValue(i));
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isWheelAttribute(int name) {
+        for (int attr : R.styleable.ProgressWheel) {
+            if (attr == name) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static class Builder {
+        private int circleRadius = 28;
+        private int barWidth = 4;
+        private int rimWidth = 4;
+        private boolean fillRadius = false;
+        private int maxArrowLineLength = 15;
+        private float spinSpeed = 230.0f;
+        private int barSpinCycleTime = 460;
+        private int barColor = 0xAA000000;
+        private int rimColor = 0x00FFFFFF;
+        private boolean linearProgress = false;
+        private boolean lineArrow = false;
+        private boolean indeterminate = false;
+        private boolean barGradient = false;
+        private ColorRamp colorRamp;
+
+        /**
+         * A builder with the default values, sizes in pixels
+         */
+        Builder() {
+        }
+
+        /**
+         * A builder with the default values, sizes converted from DP for the given context
+         */
+        public Builder(Context context) {
+            // We transform the default values from DIP to pixels
+            DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+            barWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, barWidth, metrics);
+            rimWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, rimWidth, metrics);
+            circleRadius =
+                    (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, circleRadius, metrics);
+        }
+
+        public Builder(WheelStyle style) {
+            set(style);
+        }
+
+        /**
+         * Start again from the values of the style
+         */
+        Builder set(WheelStyle style) {
+            circleRadius = style.circleRadius;
+            barWidth = style.barWidth;
+            rimWidth = style.rimWidth;
+            fillRadius = style.fillRadius;
+            maxArrowLineLength = style.maxArrowLineLength;
+            spinSpeed = style.spinSpeed;
+            barSpinCycleTime = style.barSpinCycleTime;
+            barColor = style.barColor;
+            rimColor = style.rimColor;
+            linearProgress = style.linearProgress;
+            lineArrow = style.lineArrow;
+            indeterminate = style.indeterminate;
+            barGradient = style.barGradient;
+            colorRamp = style.colorRamp;
+            return this;
+        }
+
+        /**
+         * Parse the attributes passed to the view from the XML
+         *
+         * @param a the attributes to parse
+         */
+        Builder parse(TypedArray a, Resources resources) {
+            circleRadius =
+                    (int) a.getDimension(R.styleable.ProgressWheel_matProg_circleRadius, circleRadius);
+
+            fillRadius = a.getBoolean(R.styleable.ProgressWheel_matProg_fillRadius, false);
+
+            barWidth = (int) a.getDimension(R.styleable.ProgressWheel_matProg_barWidth, barWidth);
+            maxArrowLineLength = (int) a.getDimension(R.styleable.ProgressWheel_matProg_arrowLineLength, maxArrowLineLength);
+
+            rimWidth = (int) a.getDimension(R.styleable.ProgressWheel_matProg_rimWidth, rimWidth);
+
+            float baseSpinSpeed =
+                    a.getFloat(R.styleable.ProgressWheel_matProg_spinSpeed, spinSpeed / 360.0f);
+            spinSpeed = baseSpinSpeed * 360;
+
+            barSpinCycleTime =
+                    a.getInt(R.styleable.ProgressWheel_matProg_barSpinCycleTime, barSpinCycleTime);
+
+            barColor = a.getColor(R.styleable.ProgressWheel_matProg_barColor, barColor);
+
+            rimColor = a.getColor(R.styleable.ProgressWheel_matProg_rimColor, rimColor);
+
+            linearProgress = a.getBoolean(R.styleable.ProgressWheel_matProg_linearProgress, false);
+
+            lineArrow = a.getBoolean(R.styleable.ProgressWheel_matProg_lineArrow, false);
+
+            barGradient = a.getBoolean(R.styleable.ProgressWheel_matProg_barGradient, false);
+
+            int barColorsId = a.getResourceId(R.styleable.ProgressWheel_matProg_barColors, 0);
+            if (barColorsId != 0) {
+                TypedArray colors = resources.obtainTypedArray(barColorsId);
+                int[] barColors = new int[colors.length()];
+                for (int i = 0; i < barColors.length; i++) {
+                    barColors[i] = colors.getColor(i, barColor);
+                }
+                colors.recycle();
+
+                long crossFadeTime = a.getInt(R.styleable.ProgressWheel_matProg_colorCrossFadeTime, 300);
+                colorRamp = new ColorRamp(barColors, crossFadeTime);
+            }
+
+            indeterminate = a.getBoolean(R.styleable.ProgressWheel_matProg_progressIndeterminate, false);
+            return this;
+        }
+
+        /**
+         * @param circleRadius the radius of the wheel, in pixels
+         */
+        public Builder circleRadius(int circleRadius) {
+            this.circleRadius = circleRadius;
+            return this;
+        }
+
+        /**
+         * @param barWidth the spinning bar width, in pixels
+         */
+        public Builder barWidth(int barWidth) {
+            this.barWidth = barWidth;
+            return this;
+        }
+
+        /**
+         * @param rimWidth the width of the wheel's contour, in pixels
+         */
+        public Builder rimWidth(int rimWidth) {
+            this.rimWidth = rimWidth;
+            return this;
+        }
+
+        public Builder fillRadius(boolean fillRadius) {
+            this.fillRadius = fillRadius;
+            return this;
+        }
+
+        /**
+         * @param arrowLineLength the length of the lines of the line arrow, in pixels
+         */
+        public Builder arrowLineLength(int arrowLineLength) {
+            this.maxArrowLineLength = arrowLineLength;
+            return this;
+        }
+
+        /**
+         * @param spinSpeed the base spinning speed, in full circle turns per second
+         */
+        public Builder spinSpeed(float spinSpeed) {
+            this.spinSpeed = spinSpeed * 360.0f;
+            return this;
+        }
+
+        /**
+         * @param barSpinCycleTime the duration of a growing or shrinking cycle of the bar, in milliseconds
+         */
+        public Builder barSpinCycleTime(int barSpinCycleTime) {
+            this.barSpinCycleTime = barSpinCycleTime;
+            return this;
+        }
+
+        /**
+         * Sets the color of the bar, replacing the color sequence if there is one
+         */
+        public Builder barColor(int barColor) {
+            this.barColor = barColor;
+            this.colorRamp = null;
+            return this;
+        }
+
+        /**
+         * @param barColors     the colors of the bar sequence, or null for a single bar color
+         * @param crossFadeTime the duration of the transition between two colors, in milliseconds
+         */
+        public Builder barColors(int[] barColors, long crossFadeTime) {
+            this.colorRamp = barColors != null ? new ColorRamp(barColors, crossFadeTime) : null;
+            return this;
+        }
+
+        public Builder rimColor(int rimColor) {
+            this.rimColor = rimColor;
+            return this;
+        }
+
+        public Builder linearProgress(boolean linearProgress) {
+            this.linearProgress = linearProgress;
+            return this;
+        }
+
+        public Builder lineArrow(boolean lineArrow) {
+            this.lineArrow = lineArrow;
+            return this;
+        }
+
+        /**
+         * @param indeterminate true if the wheels inflated with this style start spinning
+         */
+        public Builder indeterminate(boolean indeterminate) {
+            this.indeterminate = indeterminate;
+            return this;
+        }
+
+        public Builder barGradient(boolean barGradient) {
+            this.barGradient = barGradient;
+            return this;
+        }
+
+        /**
+         * @return the style, the same object as a style built before with the same values,
+         * so setting a style again doesn't allocate paints
+         */
+        public WheelStyle build() {
+            int hash = hash();
+            int mask = interned.length - 1;
+            synchronized (interned) {
+                int slot = hash & mask;
+                for (WheelStyle style = interned[slot]; style != null; style = interned[slot]) {
+                    if (style.hash == hash && style.matches(this)) {
+                        return style;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+
+                WheelStyle style = new WheelStyle(this, hash);
+                if (internedCount >= interned.length * 3 / 4) {
+                    Arrays.fill(interned, null);
+                    internedCount = 0;
+                    slot = hash & mask;
+                }
+                interned[slot] = style;
+                internedCount++;
+                return style;
+            }
+        }
+
+        private int hash() {
+            int hash = circleRadius;
+            hash = 31 * hash + barWidth;
+            hash = 31 * hash + rimWidth;
+            hash = 31 * hash + (fillRadius ? 1 : 0);
+            hash = 31 * hash + maxArrowLineLength;
+            hash = 31 * hash + Float.floatToIntBits(spinSpeed);
+            hash = 31 * hash + barSpinCycleTime;
+            hash = 31 * hash + barColor;
+            hash = 31 * hash + rimColor;
+            hash = 31 * hash + (linearProgress ? 1 : 0);
+            hash = 31 * hash + (lineArrow ? 1 : 0);
+            hash = 31 * hash + (indeterminate ? 1 : 0);
+            hash = 31 * hash + (barGradient ? 1 : 0);
+            hash = 31 * hash + (colorRamp != null ? colorRamp.hashCode() : 0);
+            return hash;
+        }
+    }
+}
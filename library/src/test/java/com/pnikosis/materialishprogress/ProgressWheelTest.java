@@ -0,0 +1,58 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Canvas;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ProgressWheelTest {
+
+    /**
+     * Before API 24 the constructor of View calls onVisibilityChanged() for android:visibility,
+     * before the fields of the wheel are set
+     */
+    @Test
+    public void inflateGoneWheel() {
+        ProgressWheel wheel = new ProgressWheel(RuntimeEnvironment.application,
+                TestAttributes.of("android:attr/visibility", "gone",
+                        "attr/matProg_progressIndeterminate", "true"));
+
+        assertEquals(View.GONE, wheel.getVisibility());
+        assertTrue(wheel.isSpinning());
+
+        wheel.setVisibility(View.VISIBLE);
+        assertTrue(wheel.isSpinning());
+    }
+
+    /**
+     * A recycled item bound in the tick of the last frame of the previous item gets a frame of its own
+     */
+    @Test
+    public void bindInTheSameTickAdvancesTheNewItem() {
+        WheelClock.install();
+        try {
+            ProgressWheel wheel = new ProgressWheel(RuntimeEnvironment.application);
+            int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            wheel.measure(spec, spec);
+            wheel.layout(0, 0, wheel.getMeasuredWidth(), wheel.getMeasuredHeight());
+            wheel.spin();
+            wheel.draw(new Canvas());
+            long framesDrawn = wheel.framesDrawn;
+
+            wheel.bind(new WheelState().progress(0.5f));
+            wheel.draw(new Canvas());
+            assertEquals(framesDrawn + 1, wheel.framesDrawn);
+        } finally {
+            WheelClock.uninstall();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.pnikosis.materialishprogress;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds the same stream of small progress updates to a wheel drawn on every frame and to a wheel
+ * drawn only when an update invalidated it, and compares what they show frame by frame:
+ * the drawing calls kept from the last draw of the second one are the ones the first one just made.
+ * A third wheel without a threshold shows the steps keep the bar within the threshold.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RedrawThresholdTest {
+    private static final long frameInterval = 1000 / 60;
+    private static final int frames = 600;
+    private static final int spinningFrames = 120;
+    private static final int updatesPerFrame = 3;
+    private static final float threshold = 1;
+
+    private final Context context = RuntimeEnvironment.application;
+    private final RecordingWheel everyFrame = createWheel(context, threshold);
+    private final RecordingWheel thresholded = createWheel(context, threshold);
+    private final RecordingWheel exact = createWheel(context, 0);
+    private final Random random = new Random(42);
+    private float progress = 0;
+
+    @Test
+    public void instantProgressDrawsTheSameFrames() {
+        int framesDrawn = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            ShadowLooper.idleMainLooper(frameInterval);
+            for (int i = 0; i < updatesPerFrame; i++) {
+                float progress = nextProgress();
+                everyFrame.setInstantProgress(progress);
+                thresholded.setInstantProgress(progress);
+                exact.setInstantProgress(progress);
+            }
+            framesDrawn += drawAndCompare(frame) ? 1 : 0;
+        }
+
+        // The threshold did skip frames
+        assertTrue(framesDrawn < frames);
+        assertTrue(thresholded.getSuppressedRedraws() > 0);
+        assertEquals(0, exact.getSuppressedRedraws());
+    }
+
+    @Test
+    public void progressDrawsTheSameFrames() {
+        int framesDrawn = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            ShadowLooper.idleMainLooper(frameInterval);
+            for (int i = 0; i < updatesPerFrame; i++) {
+                float progress = nextProgress();
+                everyFrame.setProgress(progress);
+                thresholded.setProgress(progress);
+                exact.setProgress(progress);
+            }
+            framesDrawn += drawAndCompare(frame) ? 1 : 0;
+        }
+
+        // The target is not drawn, only the updates moving the bar to another step are
+        assertTrue(framesDrawn < frames);
+        assertTrue(thresholded.getSuppressedRedraws() > 0);
+        assertEquals(0, exact.getSuppressedRedraws());
+    }
+
+    @Test
+    public void spinningIsNeverSuppressed() {
+        everyFrame.spin();
+        thresholded.spin();
+        exact.spin();
+        for (int frame = 0; frame < spinningFrames; frame++) {
+            ShadowLooper.idleMainLooper(frameInterval);
+            assertTrue("frame " + frame, drawAndCompare(frame));
+        }
+
+        // The first update leaves the spin mode and is always drawn
+        everyFrame.setProgress(0.5f);
+        thresholded.setProgress(0.5f);
+        exact.setProgress(0.5f);
+        assertTrue(drawAndCompare(spinningFrames));
+        assertEquals(0, thresholded.getSuppressedRedraws());
+    }
+
+    /**
+     * @return true if the thresholded wheel was drawn for this frame
+     */
+    private boolean drawAndCompare(int frame) {
+        everyFrame.drawFrame();
+        boolean isDrawn = thresholded.drawIfDirty();
+        exact.drawIfDirty();
+
+        assertEquals("frame " + frame, everyFrame.canvas.calls, thresholded.canvas.calls);
+
+        float radius = exact.canvas.bounds.width() / 2;
+        assertTrue(radius > 0);
+        float distance = (float) Math.abs(Math.toRadians(exact.canvas.from - thresholded.canvas.from)) * radius;
+        assertTrue("frame " + frame + " is " + distance + "px away", distance <= threshold);
+        return isDrawn;
+    }
+
+    /**
+     * @return the next of small steps, mostly forward, a fraction of a pixel each on a wheel of this size
+     */
+    private float nextProgress() {
+        progress += (random.nextFloat() - 0.2f) * 0.002f;
+        progress = Math.max(0, Math.min(progress, 0.95f));
+        return progress;
+    }
+
+    private static RecordingWheel createWheel(Context context, float threshold) {
+        RecordingWheel wheel = new RecordingWheel(context);
+        wheel.setStyle(new WheelStyle.Builder(context).build());
+        wheel.setRedrawThreshold(threshold);
+        int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        wheel.measure(spec, spec);
+        wheel.layout(0, 0, wheel.getMeasuredWidth(), wheel.getMeasuredHeight());
+        return wheel;
+    }
+
+    /**
+     * Drawn only when invalidated since its last draw, like a display list recorded again
+     */
+    private static class RecordingWheel extends ProgressWheel {
+        final RecordingCanvas canvas = new RecordingCanvas();
+        private boolean isDirty = true;
+
+        RecordingWheel(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate() {
+            isDirty = true;
+            super.invalidate();
+        }
+
+        boolean drawIfDirty() {
+            if (!isDirty) {
+                return false;
+            }
+            drawFrame();
+            return true;
+        }
+
+        void drawFrame() {
+            isDirty = false;
+            canvas.calls.clear();
+            draw(canvas);
+        }
+    }
+
+    /**
+     * Keeps the drawing calls of the last draw, and the start angle of its bar:
+     * the arcs other than the whole circle of the rim
+     */
+    private static class RecordingCanvas extends Canvas {
+        final List<String> calls = new ArrayList<>();
+        final RectF bounds = new RectF();
+        float from;
+
+        @Override
+        public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
+            calls.add("arc " + oval + " " + startAngle + " " + sweepAngle + " " + useCenter + " " + describe(paint));
+            if (sweepAngle != 360) {
+                bounds.set(oval);
+                from = startAngle;
+            }
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            calls.add("line " + startX + " " + startY + " " + stopX + " " + stopY + " " + describe(paint));
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+            calls.add("circle " + cx + " " + cy + " " + radius + " " + describe(paint));
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            // The arrow and the bar paths are built from the angles of the frame
+            calls.add("path " + describe(paint));
+        }
+
+        private static String describe(Paint paint) {
+            return Integer.toHexString(paint.getColor()) + "/" + paint.getStrokeWidth();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.pnikosis.materialishprogress;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a {@link WheelRenderLoop} without a thread, frame by frame with {@link WheelRenderLoop#renderFrame(long)},
+ * into a target that records the rim of the frames, and on its render thread into a {@link BitmapRenderTarget}
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RenderLoopTest {
+    private static final long frameInterval = 1000 / 60;
+    private static final int size = 200;
+    private static final long joinTimeout = 5000;
+
+    private final RecordingTarget target = new RecordingTarget();
+    private final WheelRenderLoop loop = new WheelRenderLoop(target,
+            new WheelStyle.Builder(RuntimeEnvironment.application).build());
+    private long now = 1000;
+
+    @Test
+    public void lastModeBeforeAFrameWins() {
+        renderFrame();
+
+        loop.spin();
+        loop.setProgress(0.5f);
+        loop.spin();
+        renderFrame();
+        assertTrue(loop.isSpinning());
+
+        loop.setProgress(0.5f);
+        loop.spin();
+        loop.stopSpinning();
+        loop.setProgress(0.25f);
+        renderFrame();
+        assertFalse(loop.isSpinning());
+    }
+
+    @Test
+    public void sameProgressAgainLeavesTheSpinMode() {
+        loop.spin();
+        renderFrame();
+        loop.setProgress(0.5f);
+        renderFrame();
+        loop.spin();
+        renderFrame();
+        assertTrue(loop.isSpinning());
+
+        loop.setProgress(0.5f);
+        renderFrame();
+        assertFalse(loop.isSpinning());
+    }
+
+    @Test
+    public void circleIsInsideThePadding() {
+        loop.setPadding(20, 30, 40, 50);
+        renderFrame();
+
+        RectF rim = target.canvas.rimBounds;
+        assertTrue(rim.left >= 20 && rim.top >= 30);
+        assertTrue(rim.right <= size - 40 && rim.bottom <= size - 50);
+    }
+
+    @Test
+    public void renderThreadDrawsUntilQuit() throws Exception {
+        BitmapRenderTarget bitmapTarget = new BitmapRenderTarget(size, size);
+        WheelRenderLoop threaded = new WheelRenderLoop(bitmapTarget,
+                new WheelStyle.Builder(RuntimeEnvironment.application).indeterminate(true).build());
+
+        Thread thread = threaded.start();
+        long deadline = System.currentTimeMillis() + joinTimeout;
+        while (bitmapTarget.getFramesPosted() < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(frameInterval);
+        }
+        threaded.quit();
+        thread.join(joinTimeout);
+
+        assertFalse(thread.isAlive());
+        assertTrue(bitmapTarget.getFramesPosted() >= 10);
+        assertTrue(threaded.isSpinning());
+    }
+
+    /**
+     * A surface destroyed right after it was created quits before the thread runs
+     */
+    @Test
+    public void quitBeforeTheThreadRuns() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            WheelRenderLoop threaded = new WheelRenderLoop(new BitmapRenderTarget(size, size),
+                    new WheelStyle.Builder(RuntimeEnvironment.application).indeterminate(true).build());
+            Thread thread = threaded.start();
+            threaded.quit();
+            thread.join(joinTimeout);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    private void renderFrame() {
+        loop.renderFrame(now);
+        now += frameInterval;
+    }
+
+    private static class RecordingTarget implements RenderTarget {
+        final RecordingCanvas canvas = new RecordingCanvas();
+
+        @Override
+        public Canvas lockCanvas() {
+            return canvas;
+        }
+
+        @Override
+        public void unlockCanvasAndPost(Canvas canvas) {
+        }
+
+        @Override
+        public int getWidth() {
+            return size;
+        }
+
+        @Override
+        public int getHeight() {
+            return size;
+        }
+    }
+
+    /**
+     * Keeps the bounds of the last rim drawn, the whole circle
+     */
+    private static class RecordingCanvas extends Canvas {
+        final RectF rimBounds = new RectF();
+
+        @Override
+        public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
+            if (sweepAngle == 360) {
+                rimBounds.set(oval);
+            }
+        }
+    }
+}
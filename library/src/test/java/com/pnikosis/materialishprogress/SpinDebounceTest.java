@@ -0,0 +1,198 @@
+package com.pnikosis.materialishprogress;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the debounce of spin() and stopSpinning() with a WheelClock
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpinDebounceTest {
+    private static final long showDelay = 500;
+    private static final long minShowTime = 1000;
+    // Long enough for the finishing arrow of a stop
+    private static final long settleTime = 5000;
+
+    private final Context context = RuntimeEnvironment.application;
+
+    @After
+    public void uninstallClock() {
+        WheelClock.uninstall();
+    }
+
+    @Test
+    public void spinIsShownAfterTheShowDelay() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(showDelay, minShowTime);
+
+        wheel.spin();
+        clock.advanceBy(showDelay - 1);
+        assertFalse(wheel.isSpinning());
+
+        clock.advanceBy(1);
+        assertTrue(wheel.isSpinning());
+        assertEquals(0, wheel.getSkippedSpins());
+    }
+
+    @Test
+    public void stopWithinTheShowDelaySkipsTheSpin() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(showDelay, minShowTime);
+
+        wheel.spin();
+        clock.advanceBy(showDelay / 2);
+        wheel.stopSpinning();
+        clock.advanceBy(settleTime);
+
+        assertFalse(wheel.isSpinning());
+        assertEquals(1, wheel.getSkippedSpins());
+    }
+
+    @Test
+    public void progressWithinTheShowDelaySkipsTheSpin() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(showDelay, minShowTime);
+
+        wheel.spin();
+        clock.advanceBy(showDelay / 2);
+        wheel.setProgress(0.5f);
+        clock.advanceBy(settleTime);
+
+        assertFalse(wheel.isSpinning());
+        assertEquals(1, wheel.getSkippedSpins());
+    }
+
+    @Test
+    public void spinWithinTheMinShowTimeCoalescesTheStop() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(0, minShowTime);
+
+        wheel.spin();
+        assertTrue(wheel.isSpinning());
+        clock.advanceBy(minShowTime / 4);
+        wheel.stopSpinning();
+        clock.advanceBy(minShowTime / 2);
+        assertTrue(wheel.isSpinning());
+
+        wheel.spin();
+        clock.advanceBy(settleTime);
+        assertTrue(wheel.isSpinning());
+        assertEquals(1, wheel.getCoalescedStops());
+    }
+
+    @Test
+    public void stopWaitsForTheMinShowTime() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(0, minShowTime);
+
+        wheel.spin();
+        clock.advanceBy(minShowTime / 4);
+        wheel.stopSpinning();
+        clock.advanceBy(settleTime);
+
+        assertFalse(wheel.isSpinning());
+        // The stop was applied, a spin now starts again instead of coalescing
+        wheel.spin();
+        assertTrue(wheel.isSpinning());
+        assertEquals(0, wheel.getCoalescedStops());
+    }
+
+    @Test
+    public void detachAppliesThePendingSpin() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(showDelay, minShowTime);
+
+        wheel.spin();
+        // Nothing is shown anymore, the delay has no use
+        wheel.onDetachedFromWindow();
+        assertTrue(wheel.isSpinning());
+
+        clock.advanceBy(settleTime);
+        assertTrue(wheel.isSpinning());
+        assertEquals(0, wheel.getSkippedSpins());
+    }
+
+    @Test
+    public void detachAppliesThePendingStop() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(0, minShowTime);
+
+        wheel.spin();
+        clock.advanceBy(minShowTime / 4);
+        wheel.stopSpinning();
+        wheel.onDetachedFromWindow();
+
+        // Stopped at once, a spin() has no stop left to coalesce
+        wheel.spin();
+        assertEquals(0, wheel.getCoalescedStops());
+    }
+
+    @Test
+    public void unbindSavesThePendingSpin() {
+        WheelClock clock = WheelClock.install();
+        ProgressWheel wheel = createWheel(showDelay, minShowTime);
+        WheelState state = new WheelState();
+
+        wheel.bind(state);
+        wheel.spin();
+        wheel.unbind();
+        clock.advanceBy(settleTime);
+
+        ProgressWheel recycled = createWheel(showDelay, minShowTime);
+        recycled.bind(state);
+        assertTrue(recycled.isSpinning());
+    }
+
+    @Test
+    public void wheelCreatedBeforeInstallFollowsTheClock() {
+        CountingWheel wheel = new CountingWheel(context);
+        int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        wheel.measure(spec, spec);
+        wheel.layout(0, 0, wheel.getMeasuredWidth(), wheel.getMeasuredHeight());
+        wheel.spin();
+
+        WheelClock clock = WheelClock.install();
+        // Adopted by the clock on its next frame, which doesn't invalidate it again
+        wheel.draw(new Canvas());
+        wheel.invalidations = 0;
+        long framesDrawn = wheel.framesDrawn;
+
+        clock.setFrameInterval(10);
+        clock.advanceFrames(100);
+        assertEquals(100, wheel.framesDrawn - framesDrawn);
+        assertEquals(1, wheel.invalidations);
+    }
+
+    private ProgressWheel createWheel(long showDelay, long minShowTime) {
+        ProgressWheel wheel = new ProgressWheel(context);
+        wheel.setSpinDebounce(showDelay, minShowTime);
+        return wheel;
+    }
+
+    private static class CountingWheel extends ProgressWheel {
+        int invalidations;
+
+        CountingWheel(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate() {
+            invalidations++;
+            super.invalidate();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.pnikosis.materialishprogress;
+
+import android.util.AttributeSet;
+
+import org.robolectric.res.Attribute;
+import org.robolectric.shadows.RoboAttributeSet;
+import org.robolectric.shadows.ShadowApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The attributes of a wheel as a layout would give them to its constructor, without a layout:
+ * <pre>
+ * TestAttributes.of("android:attr/visibility", "gone", "attr/matProg_barColor", "#5588FF")
+ * </pre>
+ */
+final class TestAttributes {
+    private static final String packageName = "com.pnikosis.materialishprogress";
+
+    private TestAttributes() {
+    }
+
+    /**
+     * @param namesAndValues the names of the attributes, android:attr/... or attr/... for the ones
+     *                       of the library, each one followed by its value as written in a layout
+     */
+    static AttributeSet of(String... namesAndValues) {
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            String name = namesAndValues[i];
+            if (!name.startsWith("android:")) {
+                name = packageName + ":" + name;
+            }
+            attributes.add(new Attribute(name, namesAndValues[i + 1], packageName));
+        }
+        return new RoboAttributeSet(attributes, ShadowApplication.getInstance().getResourceLoader());
+    }
+}